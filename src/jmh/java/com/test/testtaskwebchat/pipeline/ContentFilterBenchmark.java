@@ -0,0 +1,58 @@
+package com.test.testtaskwebchat.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность автомата в зависимости от размера словаря и длины сообщения.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContentFilterBenchmark {
+
+    @Param({"100", "10000", "50000"})
+    private int patternCount;
+
+    @Param({"64", "1024", "10000"})
+    private int messageLength;
+
+    private AhoCorasickMatcher matcher;
+    private String message;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+        for (int i = 0; i < patternCount; i++) {
+            builder.add(randomWord(random, 4 + random.nextInt(8)), ContentFilterProcessor.BANNED_WORD);
+        }
+        matcher = builder.build();
+
+        StringBuilder text = new StringBuilder(messageLength);
+        while (text.length() < messageLength) {
+            text.append(randomWord(random, 2 + random.nextInt(8))).append(' ');
+        }
+        message = text.substring(0, messageLength);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        matcher.scan(message, (start, end, tag) -> {
+            blackhole.consume(start);
+            return true;
+        });
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
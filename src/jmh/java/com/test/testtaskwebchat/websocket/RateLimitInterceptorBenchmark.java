@@ -0,0 +1,57 @@
+package com.test.testtaskwebchat.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость RateLimitInterceptor на горячем пути /app/chat.send.
+ * Лимиты заведомо большие, чтобы измерять только проверку, а не отказы.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimitInterceptorBenchmark {
+
+    private RateLimitInterceptor interceptor;
+    private Message<byte[]> message;
+
+    @Setup
+    public void setUp() {
+        // отказов не бывает, канал ошибок никуда не отправляет
+        SimpMessagingTemplate errors = new SimpMessagingTemplate((reply, timeout) -> true);
+        interceptor = new RateLimitInterceptor(new SimpleMeterRegistry(), errors, true,
+                1e9, 1_000_000, 1e9, 1_000_000, 1e9, 1_000_000);
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId("session-1");
+        accessor.setUser(() -> "alice");
+        accessor.setDestination("/app/chat.send");
+        message = MessageBuilder.createMessage("hello".getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    @Benchmark
+    public Message<?> baseline() {
+        return message;
+    }
+
+    @Benchmark
+    public Message<?> singleSession() {
+        return interceptor.preSend(message, null);
+    }
+
+    // все потоки бьют в одни и те же корзины: худший случай для CAS
+    @Benchmark
+    @Threads(4)
+    public Message<?> contendedSession() {
+        return interceptor.preSend(message, null);
+    }
+}
@@ -0,0 +1,106 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.repository.AttachmentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Удаление вложений, которые загрузили, но так и не отправили в сообщении за unsent-ttl.
+ * Строка удаляется, только если ее не успели прикрепить к сообщению; файл в хранилище -
+ * только если на то же содержимое не ссылается другое вложение и его не загружали заново за ttl.
+ * Запускается после старта и затем раз в cleanup-interval.
+ */
+@Component
+@Slf4j
+public class AttachmentCleanup {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentStore attachmentStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long unsentTtlMs;
+    private final long intervalMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "attachment-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AttachmentCleanup(AttachmentRepository attachmentRepository,
+                             AttachmentStore attachmentStore,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${chat.attachments.unsent-ttl-ms:86400000}") long unsentTtlMs,
+                             @Value("${chat.attachments.cleanup-interval-ms:3600000}") long intervalMs) {
+        this.attachmentRepository = attachmentRepository;
+        this.attachmentStore = attachmentStore;
+        this.transactionTemplate = transactionTemplate;
+        this.unsentTtlMs = unsentTtlMs;
+        this.intervalMs = intervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                int removed = cleanup(Instant.now());
+                if (removed > 0) {
+                    log.info("Удалено неотправленных вложений: {}", removed);
+                }
+            } catch (Exception e) {
+                log.error("Ошибка при удалении неотправленных вложений", e);
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    int cleanup(Instant now) throws IOException {
+        Instant before = now.minusMillis(unsentTtlMs);
+        LocalDateTime createdBefore = LocalDateTime.ofInstant(before, ZoneId.systemDefault());
+
+        int removed = 0;
+        List<Attachment> batch;
+        while (!(batch = attachmentRepository.findByMessageIdIsNullAndCreatedAtBefore(
+                createdBefore, PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+            List<Long> ids = batch.stream().map(Attachment::getId).toList();
+            Integer deleted = transactionTemplate.execute(status -> attachmentRepository.deleteUnsent(ids));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            removed += deleted;
+
+            Set<String> hashes = batch.stream().map(Attachment::getSha256).collect(Collectors.toSet());
+            for (String sha256 : hashes) {
+                if (!attachmentRepository.existsBySha256(sha256)) {
+                    attachmentStore.deleteIfNotStoredSince(sha256, before);
+                }
+            }
+        }
+
+        attachmentStore.deleteIncomingOlderThan(before);
+        return removed;
+    }
+}
@@ -0,0 +1,154 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.model.Attachment;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Отдача вложения без чтения файла в heap. Если коннектор Tomcat поддерживает sendfile,
+ * файл уходит в сокет ядром (атрибуты org.apache.tomcat.sendfile.*), иначе -
+ * FileChannel.transferTo в канал поверх выходного потока ответа.
+ * ETag - хеш содержимого, поддерживаются If-None-Match, Range (один диапазон) и If-Range.
+ */
+@Component
+@RequiredArgsConstructor
+public class AttachmentDownload {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // только форматы, которые браузер не исполняет; остальное (в том числе SVG и HTML) скачивается
+    private static final Set<String> INLINE_TYPES = Set.of("image/png", "image/jpeg", "image/gif", "image/webp");
+
+    private static final String CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable().getHeaderValue();
+
+    private final AttachmentStore attachmentStore;
+
+    public void send(Attachment attachment, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = attachment.getSize();
+        String etag = "\"" + attachment.getSha256() + "\"";
+
+        // содержимое по хешу никогда не меняется
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        boolean inline = isInline(attachment.getContentType());
+        response.setContentType(inline ? attachment.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(inline ? "inline" : "attachment")
+                .filename(attachment.getFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = singleRange(request.getHeader(HttpHeaders.RANGE), request.getHeader(HttpHeaders.IF_RANGE), etag);
+        if (range != null) {
+            boolean satisfiable;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                // HttpRange не проверяет начало за концом файла (bytes=100- для 10 байт) и суффикс -0
+                satisfiable = start < length && start <= end;
+            } catch (IllegalArgumentException e) {
+                satisfiable = false;
+            }
+            if (!satisfiable) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count == 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        transfer(attachmentStore.path(attachment.getSha256()), start, count, request, response);
+    }
+
+    public static boolean isInline(String contentType) {
+        return INLINE_TYPES.contains(contentType);
+    }
+
+    private static void transfer(Path file, long start, long count,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    throw new EOFException("Файл вложения короче записанного размера: " + file);
+                }
+                position += sent;
+            }
+        }
+    }
+
+    // несколько диапазонов не поддерживаем: по RFC 9110 сервер вправе отдать весь файл
+    static HttpRange singleRange(String rangeHeader, String ifRange, String etag) {
+        if (rangeHeader == null || (ifRange != null && !ifRange.strip().equals(etag))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.strip();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.dto.AttachmentDto;
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.model.ChatUser;
+import com.test.testtaskwebchat.pipeline.MessageRejectedException;
+import com.test.testtaskwebchat.repository.AttachmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class AttachmentService {
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentStore attachmentStore;
+    private final long maxSize;
+    private final int maxPerMessage;
+
+    public AttachmentService(AttachmentRepository attachmentRepository,
+                             AttachmentStore attachmentStore,
+                             @Value("${chat.attachments.max-size:20971520}") long maxSize,
+                             @Value("${chat.attachments.max-per-message:10}") int maxPerMessage) {
+        this.attachmentRepository = attachmentRepository;
+        this.attachmentStore = attachmentStore;
+        this.maxSize = maxSize;
+        this.maxPerMessage = maxPerMessage;
+    }
+
+    // файл пишется в хранилище до транзакции, в БД попадает только ссылка
+    public AttachmentDto upload(ChatUser user, String fileName, String contentType, InputStream content) throws IOException {
+        AttachmentStore.StoredBlob blob = attachmentStore.store(content, maxSize);
+        Attachment attachment = attachmentRepository.save(Attachment.builder()
+                .userId(user.getId())
+                .sha256(blob.sha256())
+                .size(blob.size())
+                .contentType(contentType)
+                .fileName(fileName)
+                .build());
+        log.info("Пользователь {} загрузил {} ({} байт, {})", user.getUsername(), fileName, blob.size(), blob.sha256());
+        return toDto(attachment);
+    }
+
+    public int getMaxPerMessage() {
+        return maxPerMessage;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Attachment> find(Long id) {
+        return attachmentRepository.findById(id);
+    }
+
+    /**
+     * Вложения пользователя, еще не привязанные к сообщению. Вызывается в транзакции сохранения
+     * сообщения: чужое, уже отправленное или несуществующее вложение отклоняет всю отправку.
+     */
+    @Transactional
+    public List<Attachment> findUnsent(ChatUser user, Collection<Long> attachmentIds) {
+        List<Long> ids = attachmentIds.stream().distinct().toList();
+        if (ids.size() > maxPerMessage) {
+            throw new MessageRejectedException("Не больше " + maxPerMessage + " вложений в сообщении");
+        }
+        List<Attachment> attachments = new ArrayList<>(
+                attachmentRepository.findByIdInAndUserIdAndMessageIdIsNull(ids, user.getId()));
+        if (attachments.size() != ids.size()) {
+            throw new MessageRejectedException("Вложение не найдено или уже отправлено");
+        }
+        attachments.sort(Comparator.comparing(Attachment::getId));
+        return attachments;
+    }
+
+    // одним запросом на всю страницу истории
+    @Transactional(readOnly = true)
+    public List<MessageDto> withAttachments(List<MessageDto> messages) {
+        if (messages.isEmpty()) {
+            return messages;
+        }
+        Map<Long, List<AttachmentDto>> byMessage = new HashMap<>();
+        List<Long> messageIds = messages.stream().map(MessageDto::getId).toList();
+        for (Attachment attachment : attachmentRepository.findByMessageIdInOrderByIdAsc(messageIds)) {
+            byMessage.computeIfAbsent(attachment.getMessageId(), id -> new ArrayList<>()).add(toDto(attachment));
+        }
+        messages.forEach(message -> message.setAttachments(byMessage.getOrDefault(message.getId(), List.of())));
+        return messages;
+    }
+
+    // текст сообщения, состоящего только из вложений
+    public static String describe(List<Attachment> attachments) {
+        return attachments.stream()
+                .map(Attachment::getFileName)
+                .collect(Collectors.joining(", ", "📎 ", ""));
+    }
+
+    public static AttachmentDto toDto(Attachment attachment) {
+        return new AttachmentDto(attachment.getId(), attachment.getFileName(), attachment.getContentType(),
+                attachment.getSize(), AttachmentDownload.isInline(attachment.getContentType()));
+    }
+}
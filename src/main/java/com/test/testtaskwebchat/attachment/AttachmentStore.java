@@ -0,0 +1,141 @@
+package com.test.testtaskwebchat.attachment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Файловое хранилище вложений с адресацией по содержимому: файл лежит в root/ab/abcdef...
+ * по SHA-256, одинаковые загрузки хранятся один раз. Загрузка пишется во временный файл
+ * с подсчетом хеша на лету и атомарно переносится на место, поэтому читатели
+ * никогда не видят недописанный файл.
+ */
+@Component
+@Slf4j
+public class AttachmentStore {
+
+    public record StoredBlob(String sha256, long size) {
+    }
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path incoming;
+
+    public AttachmentStore(@Value("${chat.attachments.dir:./data/attachments}") Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        // на том же разделе, что и хранилище, чтобы перенос был rename
+        this.incoming = this.root.resolve("incoming");
+        try {
+            Files.createDirectories(incoming);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог вложений " + this.root, e);
+        }
+    }
+
+    public StoredBlob store(InputStream content, long maxSize) throws IOException {
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            byte[] chunk = new byte[BUFFER_SIZE];
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = content.read(chunk)) != -1) {
+                    size += read;
+                    if (size > maxSize) {
+                        throw new AttachmentTooLargeException(maxSize);
+                    }
+                    digest.update(chunk, 0, read);
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                log.debug("Вложение {} уже есть в хранилище", hash);
+                // свежая метка времени не дает AttachmentCleanup удалить файл, на который сейчас появится ссылка
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return new StoredBlob(hash, size);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // тот же файл параллельно загрузил кто-то еще
+            }
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Удаляет файл, если его не загружали повторно после before. Возвращает true, если файл удален.
+     */
+    public boolean deleteIfNotStoredSince(String sha256, Instant before) throws IOException {
+        Path file = path(sha256);
+        try {
+            if (Files.getLastModifiedTime(file).toInstant().isAfter(before)) {
+                return false;
+            }
+            return Files.deleteIfExists(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Недописанные загрузки, оставшиеся после аварийной остановки.
+     */
+    public int deleteIncomingOlderThan(Instant before) throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(incoming, "*.part")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(before) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    public Path path(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Некорректный хеш вложения: " + sha256);
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.test.testtaskwebchat.attachment;
+
+import lombok.Getter;
+
+@Getter
+public class AttachmentTooLargeException extends RuntimeException {
+
+    private final long maxSize;
+
+    public AttachmentTooLargeException(long maxSize) {
+        super("Файл больше " + maxSize + " байт");
+        this.maxSize = maxSize;
+    }
+}
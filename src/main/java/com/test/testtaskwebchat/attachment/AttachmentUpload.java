@@ -0,0 +1,109 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.dto.AttachmentDto;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор запроса загрузки: каждая файловая часть multipart передается обработчику
+ * потоком по мере чтения тела, обычные поля формы пропускаются.
+ */
+public final class AttachmentUpload {
+
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+    private static final int MAX_CONTENT_TYPE_LENGTH = 127;
+
+    @FunctionalInterface
+    public interface FileHandler {
+        AttachmentDto accept(String fileName, String contentType, InputStream content) throws IOException;
+    }
+
+    private AttachmentUpload() {
+    }
+
+    public static List<AttachmentDto> read(HttpServletRequest request, int maxFiles, FileHandler handler) throws IOException {
+        return read(request.getContentType(), request.getInputStream(), maxFiles, handler);
+    }
+
+    static List<AttachmentDto> read(String contentType, InputStream body, int maxFiles, FileHandler handler) throws IOException {
+        MultipartReader reader = new MultipartReader(body, boundary(contentType));
+        List<AttachmentDto> uploaded = new ArrayList<>();
+        MultipartReader.Part part;
+        while ((part = reader.next()) != null) {
+            String fileName = fileName(part.header("Content-Disposition"));
+            if (fileName == null) {
+                continue;
+            }
+            if (uploaded.size() == maxFiles) {
+                throw new MalformedMultipartException("Не больше " + maxFiles + " файлов за раз");
+            }
+            uploaded.add(handler.accept(fileName, contentType(part.header("Content-Type")), part.body()));
+        }
+        return uploaded;
+    }
+
+    private static String boundary(String contentType) throws MalformedMultipartException {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            String boundary = mediaType.getParameter("boundary");
+            if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType) || boundary == null) {
+                throw new MalformedMultipartException("Ожидается multipart/form-data");
+            }
+            if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                boundary = boundary.substring(1, boundary.length() - 1);
+            }
+            if (boundary.isEmpty() || boundary.length() > 70) {
+                throw new MalformedMultipartException("Некорректный boundary");
+            }
+            return boundary;
+        } catch (InvalidMediaTypeException e) {
+            throw new MalformedMultipartException("Ожидается multipart/form-data");
+        }
+    }
+
+    // имя файла без пути; null - часть не файловая или файл не выбран
+    static String fileName(String contentDisposition) throws MalformedMultipartException {
+        if (contentDisposition == null) {
+            return null;
+        }
+        String fileName;
+        try {
+            fileName = ContentDisposition.parse(contentDisposition).getFilename();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedMultipartException("Некорректный Content-Disposition части");
+        }
+        if (fileName == null) {
+            return null;
+        }
+        fileName = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1).strip();
+        if (fileName.isEmpty()) {
+            return null;
+        }
+        if (fileName.length() > MAX_FILE_NAME_LENGTH) {
+            fileName = fileName.substring(fileName.length() - MAX_FILE_NAME_LENGTH);
+        }
+        return fileName;
+    }
+
+    private static String contentType(String header) {
+        if (header == null) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(header);
+            String type = mediaType.getType() + "/" + mediaType.getSubtype();
+            return mediaType.isConcrete() && type.length() <= MAX_CONTENT_TYPE_LENGTH
+                    ? type
+                    : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+}
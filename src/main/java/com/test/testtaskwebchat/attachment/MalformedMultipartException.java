@@ -0,0 +1,10 @@
+package com.test.testtaskwebchat.attachment;
+
+import java.io.IOException;
+
+public class MalformedMultipartException extends IOException {
+
+    public MalformedMultipartException(String message) {
+        super(message);
+    }
+}
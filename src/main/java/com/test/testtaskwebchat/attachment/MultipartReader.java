@@ -0,0 +1,265 @@
+package com.test.testtaskwebchat.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Потоковый разбор multipart/form-data: части читаются по очереди прямо из тела запроса,
+ * содержимое файла не копится ни в памяти, ни во временных файлах контейнера.
+ * Память - один буфер фиксированного размера независимо от размера частей.
+ */
+final class MultipartReader {
+
+    static final int MAX_HEADER_SIZE = 8 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    static final class Part {
+        private final Map<String, String> headers;
+        private final InputStream body;
+
+        private Part(Map<String, String> headers, InputStream body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        // читается до следующего разделителя; непрочитанный остаток пропускается в next()
+        InputStream body() {
+            return body;
+        }
+    }
+
+    private final InputStream in;
+    // CRLF--boundary: разделитель вместе с концом строки предыдущей части
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    // buffer[pos, bodyEnd) - байты тела, в которых разделителя точно нет
+    private int bodyEnd = -1;
+    private boolean delimiterAtBodyEnd;
+
+    private PartBody current;
+    private boolean finished;
+
+    MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, MAX_HEADER_SIZE + 2 * delimiter.length)];
+        // тело начинается с --boundary без CRLF: подставляем его и пропускаем преамбулу как часть
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+        current = new PartBody();
+    }
+
+    /**
+     * Следующая часть или null после закрывающего разделителя.
+     */
+    Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.skipRest();
+        current = null;
+
+        if (!fill(2)) {
+            throw new MalformedMultipartException("Тело оборвано после разделителя");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        // после разделителя допустимы пробелы до конца строки
+        while (fill(1) && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+            pos++;
+        }
+        if (!fill(2) || buffer[pos] != '\r' || buffer[pos + 1] != '\n') {
+            throw new MalformedMultipartException("Нет перевода строки после разделителя");
+        }
+        pos += 2;
+
+        Map<String, String> headers = readHeaders();
+        current = new PartBody();
+        return new Part(headers, current);
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String lastName = null;
+        int total = 0;
+        while (true) {
+            int end = indexOfCrlf();
+            total += end - pos + 2;
+            if (total > MAX_HEADER_SIZE) {
+                throw new MalformedMultipartException("Слишком длинные заголовки части");
+            }
+            String line = new String(buffer, pos, end - pos, StandardCharsets.UTF_8);
+            pos = end + 2;
+            if (line.isEmpty()) {
+                return headers;
+            }
+
+            if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && lastName != null) {
+                // устаревшее продолжение предыдущего заголовка
+                headers.merge(lastName, " " + line.strip(), String::concat);
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new MalformedMultipartException("Некорректный заголовок части");
+            }
+            lastName = line.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+            headers.put(lastName, line.substring(colon + 1).strip());
+        }
+    }
+
+    private int indexOfCrlf() throws IOException {
+        while (true) {
+            for (int i = pos; i < limit - 1; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            // буфер больше MAX_HEADER_SIZE, поэтому место для дочитывания есть всегда
+            if (limit - pos > MAX_HEADER_SIZE) {
+                throw new MalformedMultipartException("Слишком длинные заголовки части");
+            }
+            if (eof) {
+                throw new MalformedMultipartException("Тело оборвано в заголовках части");
+            }
+            readMore();
+        }
+    }
+
+    // сколько байт тела можно отдать с pos; 0 - с pos начинается разделитель
+    private int bodyBytes() throws IOException {
+        while (true) {
+            if (bodyEnd > pos) {
+                return bodyEnd - pos;
+            }
+            if (bodyEnd == pos && delimiterAtBodyEnd) {
+                return 0;
+            }
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                bodyEnd = index;
+                delimiterAtBodyEnd = true;
+                return index - pos;
+            }
+            // хвост короче разделителя может оказаться его началом, его отдаем позже
+            int safeEnd = limit - (delimiter.length - 1);
+            if (safeEnd > pos) {
+                bodyEnd = safeEnd;
+                delimiterAtBodyEnd = false;
+                return safeEnd - pos;
+            }
+            if (eof) {
+                throw new MalformedMultipartException("Тело оборвано до закрывающего разделителя");
+            }
+            readMore();
+        }
+    }
+
+    private void consumeDelimiter() {
+        pos += delimiter.length;
+        bodyEnd = -1;
+        delimiterAtBodyEnd = false;
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        outer:
+        for (int i = pos; i <= limit - delimiter.length; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private boolean fill(int count) throws IOException {
+        while (limit - pos < count) {
+            if (eof) {
+                return false;
+            }
+            readMore();
+        }
+        return true;
+    }
+
+    // сдвигает непрочитанное в начало буфера и дочитывает поток
+    private void readMore() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            if (bodyEnd >= 0) {
+                bodyEnd -= pos;
+            }
+            pos = 0;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private final class PartBody extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            int available = bodyBytes();
+            if (available == 0) {
+                done = true;
+                consumeDelimiter();
+                return -1;
+            }
+            int count = Math.min(available, length);
+            System.arraycopy(buffer, pos, target, offset, count);
+            pos += count;
+            return count;
+        }
+
+        void skipRest() throws IOException {
+            while (!done) {
+                int available = bodyBytes();
+                if (available == 0) {
+                    done = true;
+                    consumeDelimiter();
+                } else {
+                    pos += available;
+                }
+            }
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class SecurityConfig {
                                 "/css/**",
                                 "/sse/**",
                                 "/h2-console/**",
+                                "/actuator/health/**",
                                 "/error"
                         ).permitAll()
                         .anyRequest().authenticated()
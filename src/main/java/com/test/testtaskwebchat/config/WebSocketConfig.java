@@ -4,9 +4,22 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.test.testtaskwebchat.tracing.InboundTraceInterceptor;
+import com.test.testtaskwebchat.tracing.OutboundTraceInterceptor;
+import com.test.testtaskwebchat.tracing.TracingJsonMessageConverter;
+import com.test.testtaskwebchat.websocket.HeartbeatInterceptor;
+import com.test.testtaskwebchat.websocket.OutboundTrafficMeter;
+import com.test.testtaskwebchat.websocket.RateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.converter.*;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -16,14 +29,45 @@ import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final HeartbeatInterceptor heartbeatInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final InboundTraceInterceptor inboundTraceInterceptor;
+    private final OutboundTraceInterceptor outboundTraceInterceptor;
+    private final OutboundTrafficMeter outboundTrafficMeter;
+
+    @Value("${chat.presence.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // heartbeat в обе стороны: по входящим heartbeat реестр сессий понимает, что клиент жив
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // трассировка первой, чтобы учитывать время всех остальных перехватчиков
+        registration.interceptors(inboundTraceInterceptor, heartbeatInterceptor, rateLimitInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(outboundTrafficMeter, outboundTraceInterceptor);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
@@ -41,7 +85,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         messageConverters.add(stringConverter);
 
         // 2. JSON конвертер для объектов (MessageDto, List<UserDto> и т.д.)
-        MappingJackson2MessageConverter jsonConverter = new MappingJackson2MessageConverter();
+        MappingJackson2MessageConverter jsonConverter = new TracingJsonMessageConverter();
 
         // Настраиваем ObjectMapper для JSON
         ObjectMapper objectMapper = new ObjectMapper();
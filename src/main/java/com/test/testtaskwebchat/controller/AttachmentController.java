@@ -0,0 +1,73 @@
+package com.test.testtaskwebchat.controller;
+
+import com.test.testtaskwebchat.attachment.AttachmentDownload;
+import com.test.testtaskwebchat.attachment.AttachmentService;
+import com.test.testtaskwebchat.attachment.AttachmentTooLargeException;
+import com.test.testtaskwebchat.attachment.AttachmentUpload;
+import com.test.testtaskwebchat.attachment.MalformedMultipartException;
+import com.test.testtaskwebchat.dto.AttachmentDto;
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.model.ChatUser;
+import com.test.testtaskwebchat.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class AttachmentController {
+
+    private final AttachmentService attachmentService;
+    private final AttachmentDownload attachmentDownload;
+    private final UserService userService;
+
+    // multipart-разбор Spring отключен (spring.servlet.multipart.enabled=false), тело читается потоком
+    @PostMapping(path = "/chat/attachments", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<AttachmentDto> upload(HttpServletRequest request,
+                                      @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+        ChatUser user = userService.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        try {
+            return AttachmentUpload.read(request, attachmentService.getMaxPerMessage(),
+                    (fileName, contentType, content) -> attachmentService.upload(user, fileName, contentType, content));
+        } catch (MalformedMultipartException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AttachmentTooLargeException e) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        }
+    }
+
+    // до отправки в сообщении вложение видит только тот, кто его загрузил
+    @GetMapping("/chat/attachments/{id}")
+    public void download(@PathVariable Long id,
+                         HttpServletRequest request,
+                         HttpServletResponse response,
+                         @AuthenticationPrincipal UserDetails userDetails) throws IOException {
+        Attachment attachment = attachmentService.find(id)
+                .filter(found -> found.getMessageId() != null || isUploader(found, userDetails))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        attachmentDownload.send(attachment, request, response);
+    }
+
+    private boolean isUploader(Attachment attachment, UserDetails userDetails) {
+        return userDetails != null && userService.findByUsername(userDetails.getUsername())
+                .map(user -> user.getId().equals(attachment.getUserId()))
+                .orElse(false);
+    }
+}
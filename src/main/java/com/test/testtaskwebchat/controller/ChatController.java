@@ -1,16 +1,34 @@
 package com.test.testtaskwebchat.controller;
 
 import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.dto.SendErrorDto;
+import com.test.testtaskwebchat.dto.SendMessageRequest;
+import com.test.testtaskwebchat.dto.TypingRequest;
 import com.test.testtaskwebchat.dto.UserDto;
 import com.test.testtaskwebchat.model.ChatMessage;
+import com.test.testtaskwebchat.pipeline.MessageRejectedException;
+import com.test.testtaskwebchat.service.ChatPageCache;
 import com.test.testtaskwebchat.service.ChatService;
+import com.test.testtaskwebchat.service.MessageDeduplicator;
+import com.test.testtaskwebchat.service.UnreadTracker;
 import com.test.testtaskwebchat.service.UserService;
+import com.test.testtaskwebchat.sse.SseBroadcaster;
+import com.test.testtaskwebchat.tracing.BroadcastEvent;
+import com.test.testtaskwebchat.tracing.InboundEvent;
+import com.test.testtaskwebchat.tracing.MessageTracing;
+import com.test.testtaskwebchat.tracing.SaveEvent;
+import com.test.testtaskwebchat.websocket.HeartbeatInterceptor;
+import com.test.testtaskwebchat.websocket.TypingTracker;
 import com.test.testtaskwebchat.websocket.WebSocketEventListener;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,31 +36,36 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class ChatController {
+    private static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
 
     private final ChatService chatService;
+    private final MessageDeduplicator messageDeduplicator;
     private final UserService userService;
     private final SimpMessagingTemplate messagingTemplate;
     private final WebSocketEventListener webSocketEventListener;
+    private final SseBroadcaster sseBroadcaster;
+    private final ChatPageCache chatPageCache;
+    private final UnreadTracker unreadTracker;
+    private final TypingTracker typingTracker;
 
     @GetMapping("/chat")
     public String chatPage(Model model,
                            @AuthenticationPrincipal UserDetails userDetails) {
         String username = userDetails.getUsername();
 
-        userService.userConnected(username);
-
-        List<MessageDto> lastMessages = chatService.getLastMessages();
-        List<UserDto> allUsers = userService.getAllUsers();
-
+        // фрагменты общие для всех и перерисовываются только при изменениях,
+        // статус онлайн выставляется при подключении по WebSocket
         model.addAttribute("username", username);
-        model.addAttribute("messages", lastMessages);
-        model.addAttribute("users", allUsers);
+        model.addAttribute("messagesHtml", chatPageCache.getMessagesHtml());
+        model.addAttribute("usersHtml", chatPageCache.getUsersHtml());
         model.addAttribute("newMessage", new ChatMessage());
 
         return "chat";
@@ -53,18 +76,24 @@ public class ChatController {
                               @AuthenticationPrincipal UserDetails userDetails) {
         String username = userDetails.getUsername();
 
-        MessageDto savedMessage = chatService.saveMessage(message.getContent(), username);
+        MessageDto savedMessage;
+        try {
+            savedMessage = chatService.saveMessage(message.getContent(), username);
+        } catch (MessageRejectedException e) {
+            return "redirect:/chat?rejected=true";
+        }
 
-        messagingTemplate.convertAndSend("/topic/messages", savedMessage);
-
-        List<UserDto> users = userService.getAllUsers();
-        messagingTemplate.convertAndSend("/topic/users", users);
+        broadcastMessage(savedMessage);
 
         return "redirect:/chat";
     }
 
     @MessageMapping("/chat.send")
-    public void handleChatMessage(String content, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleChatMessage(SendMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        InboundEvent inbound = MessageTracing.inboundEvent(headerAccessor);
+        if (inbound != null) {
+            inbound.end();
+        }
 
         // Получаем пользователя из заголовков
         java.security.Principal principal = headerAccessor.getUser();
@@ -74,26 +103,81 @@ public class ChatController {
         }
 
         String username = principal.getName();
-        log.info("Получено сообщение через WebSocket от {}: {}", username, content);
+        String clientMessageId = request.getClientMessageId();
+        log.info("Получено сообщение через WebSocket от {} ({}): {}", username, clientMessageId, request.getContent());
 
-        // Сохраняем сообщение
-        MessageDto savedMessage = chatService.saveMessage(content, username);
+        if (clientMessageId != null && clientMessageId.length() > MAX_CLIENT_MESSAGE_ID_LENGTH) {
+            throw new MessageRejectedException("Некорректный идентификатор сообщения", null);
+        }
+
+        // Сохраняем сообщение, повторная отправка того же clientMessageId вернет исходное
+        SaveEvent save = new SaveEvent();
+        save.begin();
+        MessageDeduplicator.Result result;
+        try {
+            result = messageDeduplicator.send(username, clientMessageId, request.getContent(), request.getAttachmentIds());
+        } catch (MessageRejectedException e) {
+            throw new MessageRejectedException(e.getMessage(), clientMessageId);
+        }
+        save.end();
+        save.commitFor(result.message(), result.duplicate());
+        if (inbound != null) {
+            inbound.commitFor(result.message());
+        }
+
+        typingTracker.stopped(username);
+
+        if (result.duplicate()) {
+            // всем оно уже было разослано, подтверждаем только отправителю
+            messagingTemplate.convertAndSendToUser(username, "/queue/acks", result.message());
+            return;
+        }
+
+        broadcastMessage(result.message());
+    }
+
+    private void broadcastMessage(MessageDto savedMessage) {
+        chatPageCache.messageAdded(savedMessage);
+        unreadTracker.messageAdded(savedMessage.getId());
 
         // Отправляем сообщение всем - будет использован JSON конвертер
-        messagingTemplate.convertAndSend("/topic/messages", savedMessage);
+        BroadcastEvent broadcast = new BroadcastEvent();
+        broadcast.begin();
+        messagingTemplate.convertAndSend("/topic/messages", savedMessage, MessageTracing.tagMessageId(savedMessage.getId()));
+        broadcast.end();
+        broadcast.commitFor(savedMessage);
+
+        sseBroadcaster.publishMessage(savedMessage);
 
         // Обновляем список пользователей - тоже будет использован JSON конвертер
         List<UserDto> users = userService.getAllUsers();
         messagingTemplate.convertAndSend("/topic/users", users);
     }
 
+    // минуя сохранение и рассылку списка пользователей, см. TypingTracker
+    @MessageMapping("/chat.typing")
+    public void handleTyping(TypingRequest request, Principal principal) {
+        if (principal != null) {
+            typingTracker.typing(principal.getName(), request.isTyping());
+        }
+    }
+
+    // сообщение не прошло фильтры - сообщаем только отправителю
+    @MessageExceptionHandler(MessageRejectedException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public SendErrorDto handleRejectedMessage(MessageRejectedException e) {
+        log.info("Сообщение отклонено: {}", e.getMessage());
+        return new SendErrorDto(e.getClientMessageId(), e.getMessage());
+    }
+
     @MessageMapping("/chat.addUser")
     public void addUser(String username,
                         org.springframework.messaging.simp.SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
         log.info("Пользователь {} подключился через WebSocket, сессия: {}", username, sessionId);
 
-        webSocketEventListener.registerUserSession(sessionId, username);
+        webSocketEventListener.registerUserSession(sessionId, username,
+                HeartbeatInterceptor.sendsHeartbeats(headerAccessor.getSessionAttributes()));
     }
 
     @SubscribeMapping("/topic/users")
@@ -103,7 +187,18 @@ public class ChatController {
 
     @SubscribeMapping("/topic/messages")
     public List<MessageDto> subscribeToMessages() {
-        return chatService.getLastMessages();
+        return chatPageCache.getRecentMessages();
+    }
+
+    // сообщения неизменяемы, поэтому полный текст можно кешировать в браузере
+    @GetMapping(value = "/chat/messages/{id}/content", produces = "text/plain;charset=UTF-8")
+    @ResponseBody
+    public ResponseEntity<String> messageContent(@PathVariable Long id) {
+        return chatService.getFullContent(id)
+                .map(content -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                        .body(content))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/chat/users/update")
@@ -1,5 +1,6 @@
 package com.test.testtaskwebchat.controller;
 
+import com.test.testtaskwebchat.service.ChatPageCache;
 import com.test.testtaskwebchat.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 public class LoginController {
 
     private final UserService userService;
+    private final ChatPageCache chatPageCache;
 
     @GetMapping("/register")
     public String showRegistrationForm(Model model) {
@@ -35,6 +37,7 @@ public class LoginController {
 
         try {
             userService.registerNewUser(form.getUsername(), form.getPassword());
+            chatPageCache.usersChanged();
             return "redirect:/login?registered=true";
         } catch (IllegalArgumentException e) {
             model.addAttribute("usernameError", e.getMessage());
@@ -0,0 +1,60 @@
+package com.test.testtaskwebchat.controller;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.dto.ReactionRequest;
+import com.test.testtaskwebchat.dto.ReactionSummaryDto;
+import com.test.testtaskwebchat.dto.ReadRequest;
+import com.test.testtaskwebchat.dto.UnreadDto;
+import com.test.testtaskwebchat.service.ChatPageCache;
+import com.test.testtaskwebchat.service.ReactionAggregator;
+import com.test.testtaskwebchat.service.UnreadTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class ReactionController {
+
+    private final ReactionAggregator reactionAggregator;
+    private final UnreadTracker unreadTracker;
+    private final ChatPageCache chatPageCache;
+
+    // итоговые счетчики уходят всем пакетом в /topic/reactions
+    @MessageMapping("/chat.react")
+    public void react(ReactionRequest request, Principal principal) {
+        if (principal == null) {
+            return;
+        }
+        if (!reactionAggregator.toggle(principal.getName(), request.getMessageId(), request.getEmoji())) {
+            log.debug("Реакция отклонена: {} {}", request.getMessageId(), request.getEmoji());
+        }
+    }
+
+    // реакции на сообщения, которые есть на странице
+    @SubscribeMapping("/reactions")
+    public List<ReactionSummaryDto> subscribeToReactions(Principal principal) {
+        List<Long> messageIds = chatPageCache.getRecentMessages().stream()
+                .map(MessageDto::getId)
+                .toList();
+        return reactionAggregator.snapshot(principal.getName(), messageIds);
+    }
+
+    @MessageMapping("/chat.read")
+    @SendToUser(destinations = "/queue/unread", broadcast = false)
+    public UnreadDto markRead(ReadRequest request, Principal principal) {
+        return unreadTracker.markRead(principal.getName(), request.getMessageId());
+    }
+
+    @SubscribeMapping("/unread")
+    public UnreadDto subscribeToUnread(Principal principal) {
+        return unreadTracker.getUnread(principal.getName());
+    }
+}
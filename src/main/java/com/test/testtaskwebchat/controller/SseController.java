@@ -0,0 +1,35 @@
+package com.test.testtaskwebchat.controller;
+
+import com.test.testtaskwebchat.sse.SseBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// поток только для чтения: сообщения и изменения онлайн-статуса без STOMP-сессии
+@Controller
+@RequiredArgsConstructor
+public class SseController {
+
+    private final SseBroadcaster sseBroadcaster;
+
+    @GetMapping(path = "/sse/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return sseBroadcaster.subscribe(parseEventId(lastEventId));
+    }
+
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// содержимое - GET /chat/attachments/{id}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentDto {
+    private Long id;
+    private String fileName;
+    private String contentType;
+    private long size;
+    // картинка, которую можно показать прямо в чате
+    private boolean inline;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -13,4 +14,22 @@ public class MessageDto {
     private String content;
     private String username;
     private LocalDateTime createdAt;
+    private String clientMessageId;
+    // в content только превью, полный текст - GET /chat/messages/{id}/content
+    private boolean truncated;
+    private List<AttachmentDto> attachments = List.of();
+
+    public MessageDto(Long id, String content, String username, LocalDateTime createdAt) {
+        this(id, content, username, createdAt, null);
+    }
+
+    public MessageDto(Long id, String content, String username, LocalDateTime createdAt, String clientMessageId) {
+        this(id, content, username, createdAt, clientMessageId, false);
+    }
+
+    // проекция истории в ChatMessageRepository, вложения догружаются отдельным запросом
+    public MessageDto(Long id, String content, String username, LocalDateTime createdAt, String clientMessageId,
+                      boolean truncated) {
+        this(id, content, username, createdAt, clientMessageId, truncated, List.of());
+    }
 }
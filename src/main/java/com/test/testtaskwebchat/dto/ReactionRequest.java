@@ -0,0 +1,13 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionRequest {
+    private Long messageId;
+    private String emoji;
+}
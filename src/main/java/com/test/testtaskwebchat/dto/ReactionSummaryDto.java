@@ -0,0 +1,16 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionSummaryDto {
+    private Long messageId;
+    private Map<String, Long> counts;
+    private Set<String> mine; // реакции текущего пользователя
+}
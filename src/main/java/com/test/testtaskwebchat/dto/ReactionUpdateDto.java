@@ -0,0 +1,14 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionUpdateDto {
+    private Long messageId;
+    private String emoji;
+    private long count;
+}
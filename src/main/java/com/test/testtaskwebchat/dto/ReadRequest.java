@@ -0,0 +1,12 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadRequest {
+    private Long messageId; // последнее сообщение, которое пользователь увидел
+}
@@ -0,0 +1,19 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SendErrorDto {
+    private String clientMessageId;
+    private String error;
+    // сообщение отброшено лимитом, его можно переотправить не раньше чем через столько мс
+    private Long retryAfterMs;
+
+    public SendErrorDto(String clientMessageId, String error) {
+        this(clientMessageId, error, null);
+    }
+}
@@ -0,0 +1,16 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SendMessageRequest {
+    private String clientMessageId; // генерируется клиентом, одинаковый при повторной отправке
+    private String content;
+    private List<Long> attachmentIds; // загружены заранее через POST /chat/attachments
+}
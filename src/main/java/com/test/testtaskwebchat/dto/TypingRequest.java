@@ -0,0 +1,12 @@
+package com.test.testtaskwebchat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingRequest {
+    private boolean typing; // false - пользователь стер текст или ушел со страницы
+}
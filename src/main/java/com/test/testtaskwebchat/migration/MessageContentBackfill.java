@@ -0,0 +1,167 @@
+package com.test.testtaskwebchat.migration;
+
+import com.test.testtaskwebchat.service.MessageContentCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Перевод существующих сообщений в формат MessageContentCodec после старта приложения.
+ * Идет в фоне и не задерживает readiness. Строки обрабатываются пачками по id
+ * с коммитом и паузой после каждой пачки, признак необработанной строки - пустой content_length.
+ * Такие строки пишут и экземпляры предыдущей версии во время rolling deploy, поэтому
+ * NOT NULL на колонки превью добавляется только следующим релизом (008-require-message-content-preview.yaml).
+ */
+@Component
+@Slf4j
+public class MessageContentBackfill {
+
+    private static final String SELECT_BATCH =
+            "SELECT id, content FROM messages WHERE id > ? AND content_length IS NULL ORDER BY id LIMIT ?";
+    // строку мог уже перенести другой экземпляр
+    private static final String UPDATE_ROW =
+            "UPDATE messages SET content_preview = ?, content_length = ?, content = ?, content_compressed = ? " +
+                    "WHERE id = ? AND content_length IS NULL";
+    // content остается как есть: его еще читают экземпляры предыдущей версии
+    private static final String UPDATE_PREVIEW =
+            "UPDATE messages SET content_preview = ?, content_length = ? WHERE id = ? AND content_length IS NULL";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final int compressThreshold;
+    private final boolean writeContent;
+    private final int batchSize;
+    private final long pauseMs;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "content-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MessageContentBackfill(DataSource dataSource,
+                                  @Value("${chat.storage.backfill.enabled:true}") boolean enabled,
+                                  @Value("${chat.storage.compress-threshold:1024}") int compressThreshold,
+                                  @Value("${chat.storage.write-content:true}") boolean writeContent,
+                                  @Value("${chat.storage.backfill.batch-size:500}") int batchSize,
+                                  @Value("${chat.storage.backfill.pause-ms:100}") long pauseMs) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.compressThreshold = compressThreshold;
+        this.writeContent = writeContent;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            executor.execute(this::runInBackground);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void runInBackground() {
+        try {
+            int migrated = backfill();
+            if (migrated > 0) {
+                log.info("Перенесено сообщений в новый формат хранения: {}", migrated);
+            }
+        } catch (SQLException e) {
+            // необработанные строки читаются через content, перенос продолжится при следующем старте
+            log.error("Перенос содержимого сообщений прерван", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int backfill() throws SQLException, InterruptedException {
+        int migrated = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long lastId = 0;
+                List<Row> batch;
+                while (!(batch = readBatch(connection, lastId)).isEmpty()) {
+                    migrated += writeBatch(connection, batch);
+                    connection.commit();
+                    lastId = batch.get(batch.size() - 1).id();
+                    Thread.sleep(pauseMs);
+                }
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return migrated;
+    }
+
+    private List<Row> readBatch(Connection connection, long afterId) throws SQLException {
+        List<Row> rows = new ArrayList<>(batchSize);
+        try (PreparedStatement select = connection.prepareStatement(SELECT_BATCH)) {
+            select.setLong(1, afterId);
+            select.setInt(2, batchSize);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong("id"), rs.getString("content")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private int writeBatch(Connection connection, List<Row> rows) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(writeContent ? UPDATE_PREVIEW : UPDATE_ROW)) {
+            for (Row row : rows) {
+                MessageContentCodec.StoredContent stored = MessageContentCodec.encode(
+                        row.content() != null ? row.content() : "", compressThreshold, writeContent);
+                update.setString(1, stored.preview());
+                update.setInt(2, stored.length());
+                if (writeContent) {
+                    update.setLong(3, row.id());
+                    update.addBatch();
+                    continue;
+                }
+                if (stored.content() != null) {
+                    update.setString(3, stored.content());
+                } else {
+                    update.setNull(3, Types.CLOB);
+                }
+                if (stored.compressed() != null) {
+                    update.setBytes(4, stored.compressed());
+                } else {
+                    update.setNull(4, Types.BLOB);
+                }
+                update.setLong(5, row.id());
+                update.addBatch();
+            }
+            int updated = 0;
+            for (int count : update.executeBatch()) {
+                updated += Math.max(count, 0);
+            }
+            return updated;
+        }
+    }
+
+    private record Row(long id, String content) {
+    }
+}
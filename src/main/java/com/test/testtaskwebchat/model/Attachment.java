@@ -0,0 +1,47 @@
+package com.test.testtaskwebchat.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// содержимое не проходит через JPA: в строке только ссылка на файл в AttachmentStore
+@Entity
+@Table(name = "attachments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Attachment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // null, пока вложение загружено, но сообщение еще не отправлено
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "content_type", nullable = false, length = 127)
+    private String contentType;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
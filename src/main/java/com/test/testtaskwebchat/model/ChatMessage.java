@@ -12,18 +12,34 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 public class ChatMessage {
+    public static final int PREVIEW_LENGTH = 280;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotBlank
+    // полный текст; пока включен chat.storage.write-content - у всех сообщений (см. MessageContentCodec)
     @Lob
-    @Column(nullable = false, length = 10000)
+    @Column(length = 10000)
     private String content;
 
+    @Lob
+    @Column(name = "content_compressed")
+    private byte[] contentCompressed;
+
+    @NotBlank
+    @Column(name = "content_preview", nullable = false, length = PREVIEW_LENGTH)
+    private String contentPreview;
+
+    @Column(name = "content_length", nullable = false)
+    private Integer contentLength;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "user_id", nullable = false)
     private ChatUser user;
@@ -0,0 +1,199 @@
+package com.test.testtaskwebchat.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Автомат Ахо-Корасик для поиска множества шаблонов за один проход, без учета регистра.
+ * После build() неизменяем и безопасен для использования из любого числа потоков.
+ * Переходы хранятся в плоских массивах (CSR), у корня - прямая таблица по символу.
+ */
+public final class AhoCorasickMatcher {
+
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * Найдено совпадение text[start, end) шаблона с меткой tag.
+         * Вернуть false, чтобы прекратить сканирование.
+         */
+        boolean onMatch(int start, int end, int tag);
+    }
+
+    private final int[] rootNext;
+    private final int[] childStart;
+    private final char[] childLabels;
+    private final int[] childTargets;
+    private final int[] fail;
+    private final int[] outLength;
+    private final int[] outTag;
+    private final int[] dictLink;
+    private final int patternCount;
+
+    private AhoCorasickMatcher(int[] rootNext, int[] childStart, char[] childLabels, int[] childTargets,
+                               int[] fail, int[] outLength, int[] outTag, int[] dictLink, int patternCount) {
+        this.rootNext = rootNext;
+        this.childStart = childStart;
+        this.childLabels = childLabels;
+        this.childTargets = childTargets;
+        this.fail = fail;
+        this.outLength = outLength;
+        this.outTag = outTag;
+        this.dictLink = dictLink;
+        this.patternCount = patternCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    public void scan(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+
+            int next = next(state, c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = next(state, c);
+            }
+            state = next < 0 ? 0 : next;
+
+            for (int s = outLength[state] > 0 ? state : dictLink[state]; s >= 0; s = dictLink[s]) {
+                if (!handler.onMatch(i - outLength[s] + 1, i + 1, outTag[s])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int next(int state, char c) {
+        if (state == 0) {
+            return rootNext[c];
+        }
+        int from = childStart[state];
+        int to = childStart[state + 1] - 1;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            char label = childLabels[mid];
+            if (label < c) {
+                from = mid + 1;
+            } else if (label > c) {
+                to = mid - 1;
+            } else {
+                return childTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    public static final class Builder {
+        private final List<Map<Character, Integer>> children = new ArrayList<>();
+        private final List<int[]> outputs = new ArrayList<>();
+        private int patternCount;
+
+        private Builder() {
+            newNode();
+        }
+
+        public Builder add(String pattern, int tag) {
+            if (pattern == null || pattern.isBlank()) {
+                return this;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = Character.toLowerCase(pattern.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = newNode();
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            // дубликаты не перезаписывают первый шаблон
+            if (outputs.get(state) == null) {
+                outputs.set(state, new int[]{pattern.length(), tag});
+                patternCount++;
+            }
+            return this;
+        }
+
+        public AhoCorasickMatcher build() {
+            int size = children.size();
+            int[] rootNext = new int[Character.MAX_VALUE + 1];
+            Arrays.fill(rootNext, -1);
+
+            int[] childStart = new int[size + 1];
+            int edges = 0;
+            for (int i = 0; i < size; i++) {
+                childStart[i] = edges;
+                edges += children.get(i).size();
+            }
+            childStart[size] = edges;
+
+            char[] childLabels = new char[edges];
+            int[] childTargets = new int[edges];
+            for (int i = 0; i < size; i++) {
+                int pos = childStart[i];
+                Character[] labels = children.get(i).keySet().toArray(new Character[0]);
+                Arrays.sort(labels);
+                for (Character label : labels) {
+                    childLabels[pos] = label;
+                    childTargets[pos] = children.get(i).get(label);
+                    pos++;
+                }
+            }
+            children.get(0).forEach((label, target) -> rootNext[label] = target);
+
+            int[] outLength = new int[size];
+            int[] outTag = new int[size];
+            for (int i = 0; i < size; i++) {
+                int[] output = outputs.get(i);
+                if (output != null) {
+                    outLength[i] = output[0];
+                    outTag[i] = output[1];
+                }
+            }
+
+            int[] fail = new int[size];
+            int[] dictLink = new int[size];
+            Arrays.fill(dictLink, -1);
+
+            // обход в ширину: суффиксные ссылки родителя уже посчитаны
+            ArrayDeque<Integer> queue = new ArrayDeque<>(children.get(0).values());
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (Map.Entry<Character, Integer> edge : children.get(node).entrySet()) {
+                    char c = edge.getKey();
+                    int child = edge.getValue();
+                    queue.add(child);
+
+                    int f = fail[node];
+                    Integer target = children.get(f).get(c);
+                    while (target == null && f != 0) {
+                        f = fail[f];
+                        target = children.get(f).get(c);
+                    }
+                    fail[child] = target == null ? 0 : target;
+                    dictLink[child] = outLength[fail[child]] > 0 ? fail[child] : dictLink[fail[child]];
+                }
+            }
+
+            return new AhoCorasickMatcher(rootNext, childStart, childLabels, childTargets,
+                    fail, outLength, outTag, dictLink, patternCount);
+        }
+
+        private int newNode() {
+            children.add(new HashMap<>());
+            outputs.add(null);
+            return children.size() - 1;
+        }
+    }
+}
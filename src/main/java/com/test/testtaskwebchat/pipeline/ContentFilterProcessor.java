@@ -0,0 +1,154 @@
+package com.test.testtaskwebchat.pipeline;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр запрещенных слов и ссылок за один проход автомата Ахо-Корасик.
+ * Слова маскируются звездочками (только целые слова), сообщения со ссылками отклоняются.
+ * Словарь перечитывается из файла при изменении: новый автомат строится в фоне
+ * и подменяется одной volatile-записью, обработка сообщений не останавливается.
+ */
+@Component
+@Order(100)
+@Slf4j
+public class ContentFilterProcessor implements MessageProcessor {
+
+    static final int BANNED_WORD = 0;
+    static final int LINK = 1;
+
+    private static final List<String> LINK_MARKERS = List.of("http://", "https://", "www.");
+
+    private final Path wordsFile;
+    private final boolean blockLinks;
+    private final long reloadIntervalMs;
+
+    private volatile AhoCorasickMatcher matcher;
+    private long loadedModified = Long.MIN_VALUE;
+    private ScheduledExecutorService reloader;
+
+    public ContentFilterProcessor(@Value("${chat.filter.words-file:./data/banned-words.txt}") Path wordsFile,
+                                  @Value("${chat.filter.block-links:true}") boolean blockLinks,
+                                  @Value("${chat.filter.reload-interval-ms:5000}") long reloadIntervalMs) {
+        this.wordsFile = wordsFile;
+        this.blockLinks = blockLinks;
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.matcher = buildMatcher(List.of());
+    }
+
+    @PostConstruct
+    public void start() {
+        reloadIfChanged();
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "content-filter-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    @Override
+    public String process(String username, String content) {
+        if (content == null || content.isEmpty()) {
+            return content;
+        }
+
+        Scan scan = new Scan(content);
+        matcher.scan(content, scan);
+
+        if (scan.linkFound) {
+            throw new MessageRejectedException("Ссылки в сообщениях запрещены");
+        }
+        return scan.masked != null ? scan.masked.toString() : content;
+    }
+
+    synchronized void reloadIfChanged() {
+        try {
+            long modified = Files.exists(wordsFile) ? Files.getLastModifiedTime(wordsFile).toMillis() : -1;
+            if (modified == loadedModified) {
+                return;
+            }
+
+            List<String> words = modified < 0 ? List.of() : readWords();
+            AhoCorasickMatcher rebuilt = buildMatcher(words);
+            matcher = rebuilt;
+            loadedModified = modified;
+            log.info("Словарь фильтра загружен: {} шаблонов из {}", rebuilt.getPatternCount(), wordsFile);
+        } catch (Exception e) {
+            // оставляем предыдущий автомат
+            log.error("Не удалось перечитать словарь фильтра {}", wordsFile, e);
+        }
+    }
+
+    private List<String> readWords() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(wordsFile, StandardCharsets.UTF_8)) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        }
+    }
+
+    private AhoCorasickMatcher buildMatcher(List<String> words) {
+        AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+        words.forEach(word -> builder.add(word, BANNED_WORD));
+        if (blockLinks) {
+            LINK_MARKERS.forEach(marker -> builder.add(marker, LINK));
+        }
+        return builder.build();
+    }
+
+    private static boolean isWordChar(CharSequence text, int index) {
+        return index >= 0 && index < text.length() && Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private static final class Scan implements AhoCorasickMatcher.MatchHandler {
+        private final String content;
+        private StringBuilder masked;
+        private boolean linkFound;
+
+        private Scan(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public boolean onMatch(int start, int end, int tag) {
+            if (tag == LINK) {
+                linkFound = true;
+                return false;
+            }
+            // "class" не должно срабатывать на "ass"
+            if (isWordChar(content, start - 1) || isWordChar(content, end)) {
+                return true;
+            }
+            if (masked == null) {
+                masked = new StringBuilder(content);
+            }
+            for (int i = start; i < end; i++) {
+                masked.setCharAt(i, '*');
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.test.testtaskwebchat.pipeline;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class MessagePipeline {
+
+    // Spring внедряет стадии уже отсортированными по @Order
+    private final List<MessageProcessor> processors;
+
+    public String process(String username, String content) {
+        String result = content;
+        for (MessageProcessor processor : processors) {
+            result = processor.process(username, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,11 @@
+package com.test.testtaskwebchat.pipeline;
+
+/**
+ * Стадия обработки сообщения перед сохранением.
+ * Возвращает (возможно измененный) текст или бросает MessageRejectedException.
+ * Порядок стадий задается через @Order.
+ */
+public interface MessageProcessor {
+
+    String process(String username, String content);
+}
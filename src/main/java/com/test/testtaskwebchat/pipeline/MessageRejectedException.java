@@ -0,0 +1,18 @@
+package com.test.testtaskwebchat.pipeline;
+
+import lombok.Getter;
+
+@Getter
+public class MessageRejectedException extends RuntimeException {
+
+    private final String clientMessageId;
+
+    public MessageRejectedException(String message) {
+        this(message, null);
+    }
+
+    public MessageRejectedException(String message, String clientMessageId) {
+        super(message);
+        this.clientMessageId = clientMessageId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.test.testtaskwebchat.repository;
+
+import com.test.testtaskwebchat.model.Attachment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
+
+    List<Attachment> findByMessageIdInOrderByIdAsc(Collection<Long> messageIds);
+
+    // прикрепить к сообщению можно только свои еще не отправленные вложения.
+    // SELECT ... FOR UPDATE: параллельная отправка с теми же вложениями ждет коммита этой
+    // и уже не находит их (message_id заполнен), а не прикрепляет их ко второму сообщению
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Attachment> findByIdInAndUserIdAndMessageIdIsNull(Collection<Long> ids, Long userId);
+
+    // для AttachmentCleanup: загруженные, но так и не отправленные
+    List<Attachment> findByMessageIdIsNullAndCreatedAtBefore(LocalDateTime before, Pageable pageable);
+
+    // вложение, которое успели прикрепить к сообщению, не удаляется
+    @Modifying
+    @Query("DELETE FROM Attachment a WHERE a.id IN :ids AND a.messageId IS NULL")
+    int deleteUnsent(@Param("ids") Collection<Long> ids);
+
+    boolean existsBySha256(String sha256);
+}
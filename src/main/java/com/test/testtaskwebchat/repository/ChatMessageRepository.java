@@ -2,16 +2,58 @@ package com.test.testtaskwebchat.repository;
 
 import com.test.testtaskwebchat.dto.MessageDto;
 import com.test.testtaskwebchat.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
 
-    @Query("SELECT new com.test.testtaskwebchat.dto.MessageDto(m.id, m.content, m.user.username, m.createdAt) " +
-            "FROM ChatMessage m ORDER BY m.createdAt DESC")
-    List<MessageDto> findAllMessagesOrderedByDateDesc();
+    // история читает только превью, LOB-колонки затрагиваются лишь у строк,
+    // которые MessageContentBackfill еще не перенес (content_length пуст)
+    String PREVIEW_PROJECTION = "SELECT new com.test.testtaskwebchat.dto.MessageDto(" +
+            "m.id, COALESCE(m.contentPreview, SUBSTRING(m.content, 1, " + ChatMessage.PREVIEW_LENGTH + ")), " +
+            "m.user.username, m.createdAt, m.clientMessageId, " +
+            "CASE WHEN m.contentLength > " + ChatMessage.PREVIEW_LENGTH + " THEN true " +
+            "WHEN m.contentLength IS NULL AND LENGTH(m.content) > " + ChatMessage.PREVIEW_LENGTH + " THEN true " +
+            "ELSE false END) ";
 
+    @Query(PREVIEW_PROJECTION + "FROM ChatMessage m ORDER BY m.createdAt DESC")
+    List<MessageDto> findAllMessagesOrderedByDateDesc(Pageable pageable);
+
+    @Query(PREVIEW_PROJECTION + "FROM ChatMessage m WHERE m.id > :afterId ORDER BY m.id ASC")
+    List<MessageDto> findMessagesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.user.username = :username AND m.clientMessageId = :clientMessageId")
+    Optional<ChatMessage> findByClientMessageId(@Param("username") String username,
+                                                @Param("clientMessageId") String clientMessageId);
+
+    @Query("SELECT m.contentPreview AS contentPreview, m.content AS content, m.contentCompressed AS contentCompressed " +
+            "FROM ChatMessage m WHERE m.id = :id")
+    Optional<StoredContent> findContentById(@Param("id") Long id);
+
+    interface StoredContent {
+        String getContentPreview();
+        String getContent();
+        byte[] getContentCompressed();
+    }
+
+    // для последовательности сообщений в UnreadTracker
+    @Query("SELECT m.id FROM ChatMessage m ORDER BY m.id DESC")
+    List<Long> findLatestIds(Pageable pageable);
+
+    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.id <= :id")
+    long countUpTo(@Param("id") Long id);
+
+    // диапазон по первичному ключу от известной позиции, а не подсчет с начала истории
+    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.id > :afterId AND m.id <= :upToId")
+    long countBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    @Query("SELECT m.id FROM ChatMessage m WHERE m.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -4,6 +4,7 @@ import com.test.testtaskwebchat.model.ChatUser;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +15,12 @@ public interface ChatUserRepository extends JpaRepository<ChatUser, Long> {
     @Query("SELECT u.username FROM ChatUser u")
     List<String> findAllUsernames();
     Optional<ChatUser> findByEmail(String email);
+
+    @Query("SELECT u.username AS username, u.lastSeen AS lastSeen FROM ChatUser u ORDER BY u.username")
+    List<UserPresence> findAllUserPresence();
+
+    interface UserPresence {
+        String getUsername();
+        LocalDateTime getLastSeen();
+    }
 }
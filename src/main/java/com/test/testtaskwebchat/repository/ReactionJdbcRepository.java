@@ -0,0 +1,74 @@
+package com.test.testtaskwebchat.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Пакетная запись реакций. Через JDBC, а не JPA: нужны batch-upsert и delete
+ * без загрузки сущностей, пользователь определяется по имени прямо в SQL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactionJdbcRepository {
+
+    public record ReactionRow(long messageId, String username, String emoji) {
+    }
+
+    private static final String INSERT_REACTION = """
+            MERGE INTO message_reactions r
+            USING (SELECT CAST(:messageId AS BIGINT) AS message_id, u.id AS user_id, CAST(:emoji AS VARCHAR(16)) AS emoji
+                   FROM users u WHERE u.username = :username) s
+            ON r.message_id = s.message_id AND r.user_id = s.user_id AND r.emoji = s.emoji
+            WHEN NOT MATCHED THEN INSERT (message_id, user_id, emoji, created_at)
+                VALUES (s.message_id, s.user_id, s.emoji, CURRENT_TIMESTAMP)
+            """;
+
+    private static final String DELETE_REACTION = """
+            DELETE FROM message_reactions
+            WHERE message_id = :messageId AND emoji = :emoji
+              AND user_id = (SELECT u.id FROM users u WHERE u.username = :username)
+            """;
+
+    private static final String SELECT_REACTIONS = """
+            SELECT r.message_id, u.username, r.emoji
+            FROM message_reactions r JOIN users u ON u.id = r.user_id
+            WHERE r.message_id IN (:messageIds)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<ReactionRow> findByMessageIds(Collection<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_REACTIONS, new MapSqlParameterSource("messageIds", messageIds),
+                (rs, rowNum) -> new ReactionRow(rs.getLong("message_id"), rs.getString("username"), rs.getString("emoji")));
+    }
+
+    public void insertAll(List<ReactionRow> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_REACTION, toParams(rows));
+        }
+    }
+
+    public void deleteAll(List<ReactionRow> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_REACTION, toParams(rows));
+        }
+    }
+
+    private static SqlParameterSource[] toParams(List<ReactionRow> rows) {
+        return rows.stream()
+                .map(row -> new MapSqlParameterSource()
+                        .addValue("messageId", row.messageId())
+                        .addValue("username", row.username())
+                        .addValue("emoji", row.emoji()))
+                .toArray(SqlParameterSource[]::new);
+    }
+}
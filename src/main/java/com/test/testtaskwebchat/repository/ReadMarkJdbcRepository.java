@@ -0,0 +1,81 @@
+package com.test.testtaskwebchat.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+
+// отметки прочтения пишутся пачками, отметка только растет
+@Repository
+@RequiredArgsConstructor
+public class ReadMarkJdbcRepository {
+
+    // ordinal - порядковый номер сообщения (см. UnreadTracker), у старых отметок может быть null
+    public record ReadMarkRow(long messageId, Long ordinal) {
+    }
+
+    private static final String UPSERT_MARK = """
+            MERGE INTO user_read_marks m
+            USING (SELECT u.id AS user_id, CAST(:messageId AS BIGINT) AS message_id, CAST(:ordinal AS BIGINT) AS ordinal
+                   FROM users u WHERE u.username = :username) s
+            ON m.user_id = s.user_id
+            WHEN MATCHED AND (m.last_read_message_id < s.message_id OR m.last_read_ordinal IS NULL) THEN
+                UPDATE SET last_read_message_id = s.message_id, last_read_ordinal = s.ordinal,
+                           updated_at = CURRENT_TIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (user_id, last_read_message_id, last_read_ordinal, updated_at)
+                VALUES (s.user_id, s.message_id, s.ordinal, CURRENT_TIMESTAMP)
+            """;
+
+    private static final String SELECT_MARK = """
+            SELECT m.last_read_message_id, m.last_read_ordinal
+            FROM user_read_marks m JOIN users u ON u.id = m.user_id
+            WHERE u.username = :username
+            """;
+
+    // самая дальняя отметка с известным номером - точка отсчета для общего числа сообщений
+    private static final String SELECT_FURTHEST_MARK = """
+            SELECT last_read_message_id, last_read_ordinal
+            FROM user_read_marks
+            WHERE last_read_ordinal IS NOT NULL
+            ORDER BY last_read_message_id DESC
+            LIMIT 1
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Optional<ReadMarkRow> findMark(String username) {
+        return jdbcTemplate.query(SELECT_MARK, Map.of("username", username), ReadMarkJdbcRepository::toRow)
+                .stream()
+                .findFirst();
+    }
+
+    public Optional<ReadMarkRow> findFurthestMark() {
+        return jdbcTemplate.query(SELECT_FURTHEST_MARK, Map.of(), ReadMarkJdbcRepository::toRow)
+                .stream()
+                .findFirst();
+    }
+
+    public void upsertAll(Map<String, ReadMarkRow> marks) {
+        if (marks.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] params = marks.entrySet().stream()
+                .map(mark -> new MapSqlParameterSource()
+                        .addValue("username", mark.getKey())
+                        .addValue("messageId", mark.getValue().messageId())
+                        .addValue("ordinal", mark.getValue().ordinal()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(UPSERT_MARK, params);
+    }
+
+    private static ReadMarkRow toRow(ResultSet rs, int rowNum) throws SQLException {
+        long ordinal = rs.getLong("last_read_ordinal");
+        return new ReadMarkRow(rs.getLong("last_read_message_id"), rs.wasNull() ? null : ordinal);
+    }
+}
@@ -2,6 +2,7 @@ package com.test.testtaskwebchat.security;
 
 import com.test.testtaskwebchat.model.ChatUser;
 import com.test.testtaskwebchat.repository.ChatUserRepository;
+import com.test.testtaskwebchat.service.ChatPageCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
@@ -18,6 +19,7 @@ import java.util.Optional;
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     private final ChatUserRepository userRepository;
+    private final ChatPageCache chatPageCache;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
@@ -43,6 +45,7 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         }
 
         userRepository.save(user);
+        chatPageCache.usersChanged();
 
         return oauth2User;
     }
@@ -0,0 +1,114 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.dto.UserDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Предрендеренные фрагменты страницы /chat: история сообщений и список пользователей.
+ * Фрагменты одинаковы для всех пользователей и перерисовываются только после
+ * нового сообщения или изменения присутствия. Последние сообщения держим в памяти
+ * и дополняем по одному, поэтому новое сообщение не требует запроса к БД.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatPageCache {
+
+    private static final int RECENT_LIMIT = 50;
+
+    private final ITemplateEngine templateEngine;
+    private final ChatService chatService;
+    private final UserService userService;
+
+    private final ArrayDeque<MessageDto> recentMessages = new ArrayDeque<>();
+    private boolean recentLoaded;
+
+    private final Fragment messagesFragment = new Fragment();
+    private final Fragment usersFragment = new Fragment();
+
+    public String getMessagesHtml() {
+        return messagesFragment.get(() ->
+                render("fragments/chat-messages", "messages", Map.of("messages", getRecentMessages())));
+    }
+
+    public String getUsersHtml() {
+        return usersFragment.get(() -> {
+            List<UserDto> users = userService.getAllUsers();
+            long onlineCount = users.stream().filter(UserDto::isOnline).count();
+            return render("fragments/chat-users", "users", Map.of("users", users, "onlineCount", onlineCount));
+        });
+    }
+
+    // в хронологическом порядке, от старых к новым
+    public synchronized List<MessageDto> getRecentMessages() {
+        if (!recentLoaded) {
+            List<MessageDto> latest = new ArrayList<>(chatService.getLastMessages());
+            latest.sort(Comparator.comparing(MessageDto::getId));
+            recentMessages.addAll(latest);
+            recentLoaded = true;
+        }
+        return List.copyOf(recentMessages);
+    }
+
+    public void messageAdded(MessageDto message) {
+        synchronized (this) {
+            // сообщение могло попасть уже в первичную загрузку из БД
+            if (recentLoaded && recentMessages.stream().noneMatch(m -> m.getId().equals(message.getId()))) {
+                recentMessages.addLast(message);
+                while (recentMessages.size() > RECENT_LIMIT) {
+                    recentMessages.removeFirst();
+                }
+            }
+        }
+        messagesFragment.invalidate();
+    }
+
+    public void usersChanged() {
+        usersFragment.invalidate();
+    }
+
+    private String render(String template, String fragment, Map<String, Object> variables) {
+        Context context = new Context(Locale.getDefault(), variables);
+        return templateEngine.process(template, Set.of(fragment), context);
+    }
+
+    /**
+     * Отрендеренный HTML с версией: инвалидация только увеличивает счетчик,
+     * а результат рендера, начатого до инвалидации, не будет отдан повторно.
+     */
+    private static final class Fragment {
+        private final AtomicLong version = new AtomicLong();
+        private volatile Rendered cached;
+
+        String get(Supplier<String> renderer) {
+            long currentVersion = version.get();
+            Rendered current = cached;
+            if (current != null && current.version == currentVersion) {
+                return current.html;
+            }
+            String html = renderer.get();
+            cached = new Rendered(currentVersion, html);
+            return html;
+        }
+
+        void invalidate() {
+            version.incrementAndGet();
+        }
+    }
+
+    private record Rendered(long version, String html) {
+    }
+}
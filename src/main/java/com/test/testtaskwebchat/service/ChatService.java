@@ -1,8 +1,11 @@
 package com.test.testtaskwebchat.service;
 
+import com.test.testtaskwebchat.attachment.AttachmentService;
 import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.model.Attachment;
 import com.test.testtaskwebchat.model.ChatMessage;
 import com.test.testtaskwebchat.model.ChatUser;
+import com.test.testtaskwebchat.pipeline.MessagePipeline;
 import com.test.testtaskwebchat.repository.ChatMessageRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -10,7 +13,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Service
 @Transactional
@@ -20,33 +23,82 @@ public class ChatService {
 
     private final ChatMessageRepository messageRepository;
     private final UserService userService;
+    private final MessagePipeline messagePipeline;
+    private final MessageContentCodec contentCodec;
+    private final AttachmentService attachmentService;
 
     public List<MessageDto> getLastMessages() {
+        // лимит уходит в SQL, по индексу idx_message_created_at
+        return attachmentService.withAttachments(
+                messageRepository.findAllMessagesOrderedByDateDesc(PageRequest.of(0, LAST_MESSAGES_LIMIT)));
+    }
 
-        List<MessageDto> allMessages = messageRepository.findAllMessagesOrderedByDateDesc();
-
-        return allMessages.stream()
-                .limit(LAST_MESSAGES_LIMIT)
-                .collect(Collectors.toList());
+    // для дозагрузки пропущенных сообщений по Last-Event-ID
+    public List<MessageDto> getMessagesAfter(long lastId, int limit) {
+        return attachmentService.withAttachments(messageRepository.findMessagesAfter(lastId, PageRequest.of(0, limit)));
     }
 
     public MessageDto saveMessage(String content, String username) {
+        return saveMessage(content, username, null);
+    }
+
+    public MessageDto saveMessage(String content, String username, String clientMessageId) {
+        return saveMessage(content, username, clientMessageId, List.of());
+    }
+
+    public MessageDto saveMessage(String content, String username, String clientMessageId, List<Long> attachmentIds) {
         ChatUser user = userService.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
+        List<Attachment> attachments = attachmentIds == null || attachmentIds.isEmpty()
+                ? List.of()
+                : attachmentService.findUnsent(user, attachmentIds);
+        // описание собирается из имен файлов, а не набрано пользователем: фильтры к нему не применяются
+        String processedContent = (content == null || content.isBlank()) && !attachments.isEmpty()
+                ? AttachmentService.describe(attachments)
+                : messagePipeline.process(username, content);
+
         ChatMessage message = ChatMessage.builder()
-                .content(content)
+                .clientMessageId(clientMessageId)
                 .user(user)
                 .build();
+        contentCodec.encode(message, processedContent);
 
         message = messageRepository.save(message);
+        // вложения загружены в этой же транзакции, изменения уйдут при коммите
+        Long messageId = message.getId();
+        attachments.forEach(attachment -> attachment.setMessageId(messageId));
 
-        return new MessageDto(
+        // в живую рассылку уходит полный текст, он уже в памяти
+        MessageDto saved = new MessageDto(
                 message.getId(),
-                message.getContent(),
+                processedContent,
                 message.getUser().getUsername(),
-                message.getCreatedAt()
+                message.getCreatedAt(),
+                message.getClientMessageId()
         );
+        saved.setAttachments(attachments.stream().map(AttachmentService::toDto).toList());
+        return saved;
+    }
+
+    public Optional<MessageDto> findByClientMessageId(String username, String clientMessageId) {
+        return messageRepository.findByClientMessageId(username, clientMessageId)
+                .map(message -> new MessageDto(
+                        message.getId(),
+                        contentCodec.decode(message),
+                        message.getUser().getUsername(),
+                        message.getCreatedAt(),
+                        message.getClientMessageId()
+                ))
+                .map(message -> attachmentService.withAttachments(List.of(message)).get(0));
+    }
+
+    // полный текст по запросу, если в истории пришло только превью
+    @Transactional(readOnly = true)
+    public Optional<String> getFullContent(Long messageId) {
+        return messageRepository.findContentById(messageId)
+                .map(stored -> MessageContentCodec.decode(
+                        stored.getContentPreview(), stored.getContent(), stored.getContentCompressed()));
     }
 
     public MessageDto saveMessage(MessageDto messageDto, String username) {
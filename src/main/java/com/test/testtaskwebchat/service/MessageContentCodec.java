@@ -0,0 +1,125 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.model.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Формат хранения текста сообщения.
+ * Превью (первые ChatMessage.PREVIEW_LENGTH символов) лежит в обычной колонке и читается историей без LOB.
+ * Если текст длиннее превью, полный текст хранится в content, а начиная с порога -
+ * в content_compressed (deflate от UTF-8). Короткие сообщения целиком помещаются в превью.
+ * Пока включен chat.storage.write-content, полный текст всегда пишется в content и не сжимается:
+ * его читают экземпляры предыдущей версии во время rolling deploy. Выключается в релизе
+ * с 008-require-message-content-preview.yaml.
+ */
+@Component
+public class MessageContentCodec {
+
+    public record StoredContent(String preview, int length, String content, byte[] compressed) {
+    }
+
+    private final int compressThreshold;
+    private final boolean writeContent;
+
+    public MessageContentCodec(@Value("${chat.storage.compress-threshold:1024}") int compressThreshold,
+                               @Value("${chat.storage.write-content:true}") boolean writeContent) {
+        this.compressThreshold = compressThreshold;
+        this.writeContent = writeContent;
+    }
+
+    public void encode(ChatMessage message, String text) {
+        StoredContent stored = encode(text, compressThreshold, writeContent);
+        message.setContentPreview(stored.preview());
+        message.setContentLength(stored.length());
+        message.setContent(stored.content());
+        message.setContentCompressed(stored.compressed());
+    }
+
+    public String decode(ChatMessage message) {
+        return decode(message.getContentPreview(), message.getContent(), message.getContentCompressed());
+    }
+
+    // общий с миграцией существующих строк, поэтому без зависимостей от Spring
+    public static StoredContent encode(String text, int compressThreshold, boolean writeContent) {
+        if (writeContent) {
+            return new StoredContent(preview(text), text.length(), text, null);
+        }
+        if (text.length() <= ChatMessage.PREVIEW_LENGTH) {
+            return new StoredContent(text, text.length(), null, null);
+        }
+
+        String preview = preview(text);
+        if (text.length() >= compressThreshold) {
+            byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = deflate(raw);
+            // несжимаемый текст (например, уже закодированный) не трогаем
+            if (compressed.length < raw.length) {
+                return new StoredContent(preview, text.length(), null, compressed);
+            }
+        }
+        return new StoredContent(preview, text.length(), text, null);
+    }
+
+    public static String decode(String preview, String content, byte[] compressed) {
+        if (compressed != null) {
+            return new String(inflate(compressed), StandardCharsets.UTF_8);
+        }
+        return content != null ? content : preview;
+    }
+
+    private static String preview(String text) {
+        if (text.length() <= ChatMessage.PREVIEW_LENGTH) {
+            return text;
+        }
+        int end = ChatMessage.PREVIEW_LENGTH;
+        // не разрываем суррогатную пару
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Поврежденное сжатое сообщение");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Поврежденное сжатое сообщение", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
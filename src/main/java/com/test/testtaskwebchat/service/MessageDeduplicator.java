@@ -0,0 +1,158 @@
+package com.test.testtaskwebchat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.test.testtaskwebchat.dto.MessageDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Идемпотентная отправка по clientMessageId.
+ * Для каждого пользователя хранится ограниченное окно последних id с TTL: повтор
+ * (в том числе параллельный, пока первая отправка еще сохраняется) получает исходный MessageDto.
+ * Между инстансами дубли отсекает уникальный индекс (user_id, client_message_id).
+ */
+@Service
+@Slf4j
+public class MessageDeduplicator {
+
+    private static final long WAIT_FOR_ORIGINAL_SECONDS = 10;
+
+    public record Result(MessageDto message, boolean duplicate) {
+    }
+
+    private final ChatService chatService;
+    private final Cache<String, Window> windows;
+    private final int maxPerUser;
+    private final long ttlNanos;
+
+    public MessageDeduplicator(ChatService chatService,
+                               @Value("${chat.dedup.ttl-ms:600000}") long ttlMs,
+                               @Value("${chat.dedup.max-per-user:256}") int maxPerUser,
+                               @Value("${chat.dedup.max-users:100000}") long maxUsers) {
+        this.chatService = chatService;
+        this.maxPerUser = maxPerUser;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        // окно неактивного пользователя целиком уходит по истечении TTL
+        this.windows = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(ttlMs))
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    public Result send(String username, String clientMessageId, String content) {
+        return send(username, clientMessageId, content, List.of());
+    }
+
+    public Result send(String username, String clientMessageId, String content, List<Long> attachmentIds) {
+        if (clientMessageId == null || clientMessageId.isBlank()) {
+            return new Result(save(username, null, content, attachmentIds), false);
+        }
+
+        Window window = windows.get(username, key -> new Window());
+        CompletableFuture<MessageDto> pending = new CompletableFuture<>();
+        CompletableFuture<MessageDto> original = window.putIfAbsent(clientMessageId, pending, System.nanoTime());
+        if (original != null) {
+            log.info("Повторная отправка {} от {}", clientMessageId, username);
+            return new Result(await(original), true);
+        }
+
+        try {
+            MessageDto saved = save(username, clientMessageId, content, attachmentIds);
+            pending.complete(saved);
+            return new Result(saved, false);
+        } catch (DataIntegrityViolationException e) {
+            // сообщение уже сохранено другим инстансом или до рестарта
+            MessageDto existing = chatService.findByClientMessageId(username, clientMessageId)
+                    .orElseThrow(() -> e);
+            pending.complete(existing);
+            return new Result(existing, true);
+        } catch (RuntimeException e) {
+            // неудачная попытка не должна блокировать повтор
+            window.remove(clientMessageId, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private MessageDto save(String username, String clientMessageId, String content, List<Long> attachmentIds) {
+        if (attachmentIds == null || attachmentIds.isEmpty()) {
+            return clientMessageId == null
+                    ? chatService.saveMessage(content, username)
+                    : chatService.saveMessage(content, username, clientMessageId);
+        }
+        return chatService.saveMessage(content, username, clientMessageId, attachmentIds);
+    }
+
+    private MessageDto await(CompletableFuture<MessageDto> original) {
+        try {
+            return original.get(WAIT_FOR_ORIGINAL_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание исходной отправки", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Исходная отправка не завершилась вовремя", e);
+        }
+    }
+
+    private final class Window {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+        synchronized CompletableFuture<MessageDto> putIfAbsent(String clientMessageId,
+                                                                CompletableFuture<MessageDto> pending,
+                                                                long nowNanos) {
+            evictExpired(nowNanos);
+
+            Entry existing = entries.get(clientMessageId);
+            if (existing != null) {
+                return existing.message;
+            }
+
+            entries.put(clientMessageId, new Entry(pending, nowNanos));
+            if (entries.size() > maxPerUser) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            return null;
+        }
+
+        synchronized void remove(String clientMessageId, CompletableFuture<MessageDto> pending) {
+            Entry entry = entries.get(clientMessageId);
+            if (entry != null && entry.message == pending) {
+                entries.remove(clientMessageId);
+            }
+        }
+
+        // порядок вставки совпадает с порядком истечения, поэтому чистим только голову
+        private void evictExpired(long nowNanos) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (nowNanos - iterator.next().getValue().createdNanos < ttlNanos) {
+                    break;
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private record Entry(CompletableFuture<MessageDto> message, long createdNanos) {
+    }
+}
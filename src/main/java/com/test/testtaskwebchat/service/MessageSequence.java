@@ -0,0 +1,91 @@
+package com.test.testtaskwebchat.service;
+
+import java.util.List;
+
+/**
+ * Порядковые номера сообщений без COUNT-запросов к messages.
+ * Номер сообщения - сколько сообщений имеют id не больше его. Хранится общее число
+ * сообщений и окно последних id по возрастанию; для id старше окна номер неизвестен (-1).
+ */
+final class MessageSequence {
+
+    record Position(long latestId, long count) {
+    }
+
+    private final long[] ids;
+    private int size;
+    private volatile long count;
+
+    MessageSequence(int capacity) {
+        this.ids = new long[capacity];
+    }
+
+    synchronized void reset(long count, List<Long> latestAscending) {
+        this.count = count;
+        size = 0;
+        for (int i = Math.max(0, latestAscending.size() - ids.length); i < latestAscending.size(); i++) {
+            ids[size++] = latestAscending.get(i);
+        }
+    }
+
+    synchronized void append(long id) {
+        int pos = upperBound(id);
+        if (pos > 0 && ids[pos - 1] == id) {
+            return;
+        }
+        if (pos == 0 && size < count) {
+            // старше окна, хранить не нужно
+            count++;
+            return;
+        }
+        if (size == ids.length) {
+            // сдвигаем окно сразу на половину, чтобы копирование было редким
+            int drop = ids.length / 2;
+            System.arraycopy(ids, drop, ids, 0, size - drop);
+            size -= drop;
+            pos -= drop;
+            if (pos < 0) {
+                count++;
+                return;
+            }
+        }
+        // сообщения сохраняются параллельно и могут прийти не по порядку id
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+        count++;
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    long count() {
+        return count;
+    }
+
+    synchronized Position position() {
+        return new Position(size > 0 ? ids[size - 1] : 0, count);
+    }
+
+    synchronized long ordinalOf(long id) {
+        if (size < count && (size == 0 || id < ids[0])) {
+            return -1;
+        }
+        return count - (size - upperBound(id));
+    }
+
+    private int upperBound(long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
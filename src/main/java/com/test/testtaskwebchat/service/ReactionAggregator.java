@@ -0,0 +1,271 @@
+package com.test.testtaskwebchat.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.test.testtaskwebchat.dto.ReactionSummaryDto;
+import com.test.testtaskwebchat.dto.ReactionUpdateDto;
+import com.test.testtaskwebchat.repository.ChatMessageRepository;
+import com.test.testtaskwebchat.repository.ReactionJdbcRepository;
+import com.test.testtaskwebchat.repository.ReactionJdbcRepository.ReactionRow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реакции на сообщения агрегируются в памяти.
+ * Счетчики - LongAdder на пару (сообщение, эмодзи), поэтому одновременные реакции
+ * на популярное сообщение не упираются в одну ячейку. Клиентам раз в broadcast-interval
+ * уходят только изменившиеся пары с итоговыми значениями, в БД изменения пишутся
+ * пачками раз в flush-interval (повторные переключения одной реакции схлопываются).
+ */
+@Service
+@Slf4j
+public class ReactionAggregator {
+
+    public static final List<String> ALLOWED = List.of("👍", "❤️", "😂", "😮", "😢", "🔥");
+
+    private final ReactionJdbcRepository reactionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long broadcastIntervalMs;
+    private final long flushIntervalMs;
+
+    private final LoadingCache<Long, MessageReactions> messages;
+    // последнее состояние каждой измененной реакции пользователя, еще не записанное в БД
+    private final ConcurrentHashMap<ReactionRow, Boolean> pendingWrites = new ConcurrentHashMap<>();
+    private final Set<ReactionKey> changed = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    public ReactionAggregator(ReactionJdbcRepository reactionRepository,
+                              ChatMessageRepository messageRepository,
+                              SimpMessagingTemplate messagingTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${chat.reactions.broadcast-interval-ms:250}") long broadcastIntervalMs,
+                              @Value("${chat.reactions.flush-interval-ms:2000}") long flushIntervalMs,
+                              @Value("${chat.reactions.max-messages:10000}") long maxMessages) {
+        this.reactionRepository = reactionRepository;
+        this.messageRepository = messageRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.broadcastIntervalMs = broadcastIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        // вытеснение намного реже сброса; незаписанные изменения все равно накладываются при загрузке
+        this.messages = Caffeine.newBuilder()
+                .maximumSize(maxMessages)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public MessageReactions load(Long messageId) {
+                        return loadAll(Set.of(messageId)).get(messageId);
+                    }
+
+                    @Override
+                    public Map<Long, MessageReactions> loadAll(Set<? extends Long> messageIds) {
+                        return loadReactions(messageIds);
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reaction-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::broadcastChanges, broadcastIntervalMs, broadcastIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Ставит или снимает реакцию пользователя. false - реакция не принята
+     * (неизвестный эмодзи или сообщение).
+     */
+    public boolean toggle(String username, Long messageId, String emoji) {
+        if (messageId == null || !ALLOWED.contains(emoji)) {
+            return false;
+        }
+        MessageReactions state = messages.get(messageId);
+        if (state == null) {
+            return false;
+        }
+
+        // compute сериализует переключения одной и той же реакции: состояние в памяти
+        // и очередь записи в БД меняются согласованно
+        pendingWrites.compute(new ReactionRow(messageId, username, emoji),
+                (row, previous) -> state.toggle(emoji, username));
+        changed.add(new ReactionKey(messageId, emoji));
+        return true;
+    }
+
+    public List<ReactionSummaryDto> snapshot(String username, Collection<Long> messageIds) {
+        Map<Long, MessageReactions> states = messages.getAll(messageIds);
+        List<ReactionSummaryDto> summaries = new ArrayList<>();
+        for (Long messageId : messageIds) {
+            MessageReactions state = states.get(messageId);
+            if (state != null && !state.isEmpty()) {
+                summaries.add(state.summary(messageId, username));
+            }
+        }
+        return summaries;
+    }
+
+    void broadcastChanges() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<ReactionUpdateDto> updates = new ArrayList<>();
+        for (Iterator<ReactionKey> iterator = changed.iterator(); iterator.hasNext(); ) {
+            ReactionKey key = iterator.next();
+            // удаляем до чтения счетчика: изменение после этой точки снова пометит пару
+            iterator.remove();
+            MessageReactions state = messages.getIfPresent(key.messageId());
+            if (state != null) {
+                updates.add(new ReactionUpdateDto(key.messageId(), key.emoji(), state.count(key.emoji())));
+            }
+        }
+        if (!updates.isEmpty()) {
+            messagingTemplate.convertAndSend("/topic/reactions", updates);
+        }
+    }
+
+    synchronized void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        Map<ReactionRow, Boolean> batch = new HashMap<>();
+        for (Map.Entry<ReactionRow, Boolean> entry : pendingWrites.entrySet()) {
+            // не удастся, если реакцию успели переключить снова - тогда запишем в следующий раз
+            if (pendingWrites.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<ReactionRow> added = new ArrayList<>();
+        List<ReactionRow> removed = new ArrayList<>();
+        batch.forEach((row, isAdded) -> (isAdded ? added : removed).add(row));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reactionRepository.insertAll(added);
+                reactionRepository.deleteAll(removed);
+            });
+            log.debug("Сохранено реакций: +{} -{}", added.size(), removed.size());
+        } catch (DataAccessException e) {
+            log.error("Не удалось сохранить {} реакций, повтор при следующем сбросе", batch.size(), e);
+            batch.forEach(pendingWrites::putIfAbsent);
+        }
+    }
+
+    private Map<Long, MessageReactions> loadReactions(Set<? extends Long> messageIds) {
+        Map<Long, MessageReactions> loaded = new HashMap<>();
+        List<Long> existing = messageRepository.findExistingIds(new ArrayList<>(messageIds));
+        if (existing.isEmpty()) {
+            return loaded;
+        }
+        existing.forEach(messageId -> loaded.put(messageId, new MessageReactions()));
+
+        for (ReactionRow row : reactionRepository.findByMessageIds(existing)) {
+            loaded.get(row.messageId()).apply(row.emoji(), row.username(), true);
+        }
+        pendingWrites.forEach((row, added) -> {
+            MessageReactions state = loaded.get(row.messageId());
+            if (state != null) {
+                state.apply(row.emoji(), row.username(), added);
+            }
+        });
+        return loaded;
+    }
+
+    private record ReactionKey(long messageId, String emoji) {
+    }
+
+    private record Member(String emoji, String username) {
+    }
+
+    private static final class MessageReactions {
+        private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final Set<Member> members = ConcurrentHashMap.newKeySet();
+
+        // true - реакция поставлена, false - снята
+        boolean toggle(String emoji, String username) {
+            Member member = new Member(emoji, username);
+            if (members.add(member)) {
+                counter(emoji).increment();
+                return true;
+            }
+            if (members.remove(member)) {
+                counter(emoji).decrement();
+            }
+            return false;
+        }
+
+        void apply(String emoji, String username, boolean added) {
+            Member member = new Member(emoji, username);
+            if (added ? members.add(member) : members.remove(member)) {
+                if (added) {
+                    counter(emoji).increment();
+                } else {
+                    counter(emoji).decrement();
+                }
+            }
+        }
+
+        long count(String emoji) {
+            LongAdder counter = counts.get(emoji);
+            return counter != null ? counter.sum() : 0;
+        }
+
+        boolean isEmpty() {
+            return members.isEmpty();
+        }
+
+        ReactionSummaryDto summary(long messageId, String username) {
+            Map<String, Long> summaryCounts = new LinkedHashMap<>();
+            Set<String> mine = new LinkedHashSet<>();
+            for (String emoji : ALLOWED) {
+                long count = count(emoji);
+                if (count > 0) {
+                    summaryCounts.put(emoji, count);
+                }
+                if (members.contains(new Member(emoji, username))) {
+                    mine.add(emoji);
+                }
+            }
+            return new ReactionSummaryDto(messageId, summaryCounts, mine);
+        }
+
+        private LongAdder counter(String emoji) {
+            return counts.computeIfAbsent(emoji, key -> new LongAdder());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.UnreadDto;
+import com.test.testtaskwebchat.repository.ChatMessageRepository;
+import com.test.testtaskwebchat.repository.ReadMarkJdbcRepository;
+import com.test.testtaskwebchat.repository.ReadMarkJdbcRepository.ReadMarkRow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Счетчики непрочитанных сообщений.
+ * Для каждого пользователя хранится последняя прочитанная позиция (id и порядковый номер),
+ * непрочитанные = общее число сообщений - номер, без запросов к БД. Отметки вместе с номером
+ * пишутся в БД пачками раз в flush-interval, поэтому номер отметки старше окна не пересчитывается.
+ */
+@Service
+@Slf4j
+public class UnreadTracker {
+
+    private record ReadMark(long messageId, long ordinal) {
+    }
+
+    private final ChatMessageRepository messageRepository;
+    private final ReadMarkJdbcRepository readMarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+
+    private final MessageSequence sequence;
+    private final ConcurrentHashMap<String, ReadMark> marks = new ConcurrentHashMap<>();
+    // отметки, еще не записанные в БД
+    private final ConcurrentHashMap<String, ReadMark> dirty = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public UnreadTracker(ChatMessageRepository messageRepository,
+                         ReadMarkJdbcRepository readMarkRepository,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${chat.unread.window:10000}") int window,
+                         @Value("${chat.unread.flush-interval-ms:5000}") long flushIntervalMs) {
+        this.messageRepository = messageRepository;
+        this.readMarkRepository = readMarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.sequence = new MessageSequence(window);
+    }
+
+    @PostConstruct
+    public void start() {
+        List<Long> latest = new ArrayList<>(messageRepository.findLatestIds(PageRequest.of(0, sequence.capacity())));
+        Collections.reverse(latest);
+        sequence.reset(countMessages(latest), latest);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "read-mark-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void messageAdded(Long messageId) {
+        sequence.append(messageId);
+    }
+
+    public UnreadDto getUnread(String username) {
+        ReadMark mark = mark(username);
+        return new UnreadDto(mark.messageId(), Math.max(0, sequence.count() - mark.ordinal()));
+    }
+
+    /**
+     * Сдвигает отметку прочтения вперед; отметка назад игнорируется.
+     */
+    public UnreadDto markRead(String username, Long messageId) {
+        if (messageId != null) {
+            MessageSequence.Position latest = sequence.position();
+            long target = Math.min(messageId, latest.latestId());
+            ReadMark current = mark(username);
+            if (target > current.messageId()) {
+                ReadMark updated = marks.merge(username, new ReadMark(target, ordinalAfter(current, target)),
+                        UnreadTracker::later);
+                dirty.merge(username, updated, UnreadTracker::later);
+            }
+        }
+        return getUnread(username);
+    }
+
+    synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Map<String, ReadMarkRow> batch = new HashMap<>();
+        for (Map.Entry<String, ReadMark> entry : dirty.entrySet()) {
+            ReadMark mark = entry.getValue();
+            if (dirty.remove(entry.getKey(), mark)) {
+                batch.put(entry.getKey(), new ReadMarkRow(mark.messageId(), mark.ordinal()));
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> readMarkRepository.upsertAll(batch));
+            log.debug("Сохранено отметок прочтения: {}", batch.size());
+        } catch (DataAccessException e) {
+            log.error("Не удалось сохранить {} отметок прочтения, повтор при следующем сбросе", batch.size(), e);
+            batch.forEach((username, row) ->
+                    dirty.merge(username, new ReadMark(row.messageId(), row.ordinal()), UnreadTracker::later));
+        }
+    }
+
+    private ReadMark mark(String username) {
+        return marks.computeIfAbsent(username, key -> readMarkRepository.findMark(key)
+                .map(row -> toMark(key, row))
+                // новый пользователь начинает с текущего конца истории
+                .orElseGet(() -> {
+                    MessageSequence.Position position = sequence.position();
+                    return new ReadMark(position.latestId(), position.count());
+                }));
+    }
+
+    private ReadMark toMark(String username, ReadMarkRow row) {
+        if (row.ordinal() != null) {
+            return new ReadMark(row.messageId(), row.ordinal());
+        }
+        // отметка записана до появления номера: считаем один раз и сохраняем при следующем сбросе
+        long ordinal = sequence.ordinalOf(row.messageId());
+        ReadMark mark = new ReadMark(row.messageId(),
+                ordinal >= 0 ? ordinal : messageRepository.countUpTo(row.messageId()));
+        dirty.merge(username, mark, UnreadTracker::later);
+        return mark;
+    }
+
+    // номер сообщения новее текущей отметки: из окна, а старше окна - диапазоном от отметки
+    private long ordinalAfter(ReadMark current, long messageId) {
+        long ordinal = sequence.ordinalOf(messageId);
+        return ordinal >= 0 ? ordinal : current.ordinal() + messageRepository.countBetween(current.messageId(), messageId);
+    }
+
+    // общее число сообщений от самой дальней сохраненной отметки, полный COUNT - только без отметок
+    private long countMessages(List<Long> latestAscending) {
+        if (latestAscending.isEmpty()) {
+            return 0;
+        }
+        long latestId = latestAscending.get(latestAscending.size() - 1);
+        return readMarkRepository.findFurthestMark()
+                .filter(row -> row.messageId() <= latestId)
+                .map(row -> row.ordinal() + messageRepository.countBetween(row.messageId(), latestId))
+                .orElseGet(messageRepository::count);
+    }
+
+    private static ReadMark later(ReadMark existing, ReadMark candidate) {
+        return candidate.messageId() > existing.messageId() ? candidate : existing;
+    }
+}
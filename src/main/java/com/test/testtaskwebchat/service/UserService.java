@@ -3,6 +3,7 @@ package com.test.testtaskwebchat.service;
 import com.test.testtaskwebchat.model.ChatUser;
 import com.test.testtaskwebchat.dto.UserDto;
 import com.test.testtaskwebchat.repository.ChatUserRepository;
+import com.test.testtaskwebchat.websocket.SessionRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -12,15 +13,16 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class UserService {
+    private static final DateTimeFormatter LAST_SEEN_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
     private final ChatUserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final ConcurrentHashMap<String, LocalDateTime> onlineUsers = new ConcurrentHashMap<>();
+    private final SessionRegistry sessionRegistry;
 
     public ChatUser registerNewUser(String username, String password) {
         if (userRepository.existsByUsername(username)) {
@@ -40,8 +42,8 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    // онлайн-статус определяется живыми STOMP-сессиями в SessionRegistry, здесь только last_seen
     public void userConnected(String username) {
-        onlineUsers.put(username, LocalDateTime.now());
         userRepository.findByUsername(username).ifPresent(user -> {
             user.setLastSeen(LocalDateTime.now());
             userRepository.save(user);
@@ -49,31 +51,31 @@ public class UserService {
     }
 
     public void userDisconnected(String username) {
-        onlineUsers.remove(username);
         userRepository.findByUsername(username).ifPresent(user -> {
             user.setLastSeen(LocalDateTime.now());
             userRepository.save(user);
         });
     }
 
+    // один запрос на весь список вместо findByUsername на каждого пользователя
     public List<UserDto> getAllUsers() {
-        List<String> allUsernames = userRepository.findAllUsernames();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-
-        return allUsernames.stream()
-                .map(username -> {
-                    boolean online = onlineUsers.containsKey(username);
-                    String lastSeen = "";
+        return userRepository.findAllUserPresence().stream()
+                .map(user -> toUserDto(user.getUsername(), user.getLastSeen()))
+                .toList();
+    }
 
-                    if (!online) {
-                        lastSeen = userRepository.findByUsername(username)
-                                .map(user -> user.getLastSeen() != null ?
-                                        user.getLastSeen().format(formatter) : "Never")
-                                .orElse("Never");
-                    }
+    public UserDto getUserStatus(String username) {
+        LocalDateTime lastSeen = userRepository.findByUsername(username)
+                .map(ChatUser::getLastSeen)
+                .orElse(null);
+        return toUserDto(username, lastSeen);
+    }
 
-                    return new UserDto(username, online, lastSeen);
-                })
-                .toList();
+    private UserDto toUserDto(String username, LocalDateTime lastSeen) {
+        boolean online = sessionRegistry.isOnline(username);
+        if (online) {
+            return new UserDto(username, true, "");
+        }
+        return new UserDto(username, false, lastSeen != null ? lastSeen.format(LAST_SEEN_FORMAT) : "Never");
     }
 }
@@ -0,0 +1,258 @@
+package com.test.testtaskwebchat.sse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.dto.UserDto;
+import com.test.testtaskwebchat.service.ChatService;
+import com.test.testtaskwebchat.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка новых сообщений и изменений присутствия по SSE для пассивных зрителей.
+ * Соединения держатся через servlet async и не занимают потоков. Рассылка только
+ * кладет событие в ограниченную очередь каждого зрителя, записью занимается пул sse-writer,
+ * причем очередь одного зрителя разбирает не больше одного потока за раз.
+ * Зритель, который не читает и набрал max-queued неотправленных событий, отключается:
+ * зависший клиент держит не больше одного потока записи и не задерживает остальных.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SseBroadcaster {
+
+    private static final int RESUME_LIMIT = 500;
+    // сколько событий подряд пишется одному зрителю, прежде чем поток уйдет к другим
+    private static final int DRAIN_BATCH = 64;
+
+    private final ChatService chatService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    private final Set<Viewer> viewers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService fanout = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sse-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService writers;
+
+    @Value("${chat.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${chat.sse.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${chat.sse.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${chat.sse.max-queued:256}")
+    private int maxQueued;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, r -> {
+            Thread thread = new Thread(r, "sse-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        fanout.scheduleAtFixedRate(this::sendHeartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        fanout.shutdownNow();
+        writers.shutdownNow();
+        viewers.forEach(viewer -> viewer.emitter.complete());
+        viewers.clear();
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Viewer viewer = new Viewer(emitter);
+
+        emitter.onCompletion(() -> forget(viewer));
+        emitter.onTimeout(() -> forget(viewer));
+        emitter.onError(e -> forget(viewer));
+
+        // дозагрузка истории - первое событие в очереди, а запрос к БД выполняется уже после
+        // регистрации зрителя. Рассылки, попавшие в очередь следом, отсекаются по lastSentId
+        viewer.queued.incrementAndGet();
+        viewer.queue.add(v -> replay(v, lastEventId));
+        viewers.add(viewer);
+        scheduleDrain(viewer);
+
+        return emitter;
+    }
+
+    public void publishMessage(MessageDto message) {
+        fanout.execute(() -> {
+            String json = toJson(message);
+            long id = message.getId();
+            for (Viewer viewer : viewers) {
+                enqueue(viewer, v -> sendMessage(v, id, json));
+            }
+        });
+    }
+
+    public void publishPresence(UserDto user) {
+        fanout.execute(() -> {
+            String json = toJson(user);
+            for (Viewer viewer : viewers) {
+                enqueue(viewer, v -> v.emitter.send(SseEmitter.event().name("presence").data(json)));
+            }
+        });
+    }
+
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    private void replay(Viewer viewer, Long lastEventId) throws Exception {
+        List<MessageDto> missed;
+        if (lastEventId == null) {
+            missed = new ArrayList<>(chatService.getLastMessages());
+            missed.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        } else {
+            missed = chatService.getMessagesAfter(lastEventId, RESUME_LIMIT);
+            viewer.lastSentId = lastEventId;
+        }
+
+        viewer.emitter.send(SseEmitter.event().name("users").data(toJson(userService.getAllUsers())));
+        for (MessageDto message : missed) {
+            sendMessage(viewer, message.getId(), toJson(message));
+        }
+    }
+
+    private static void sendMessage(Viewer viewer, long id, String json) throws Exception {
+        if (id > viewer.lastSentId) {
+            viewer.emitter.send(SseEmitter.event().id(Long.toString(id)).name("message").data(json));
+            viewer.lastSentId = id;
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Viewer viewer : viewers) {
+            enqueue(viewer, v -> v.emitter.send(SseEmitter.event().comment("ping")));
+        }
+    }
+
+    private void enqueue(Viewer viewer, Outgoing event) {
+        if (viewer.closed) {
+            return;
+        }
+        if (viewer.queued.incrementAndGet() > maxQueued) {
+            log.warn("SSE-зритель не успевает читать, отключаем ({} событий в очереди)", maxQueued);
+            close(viewer, new IllegalStateException("Очередь SSE-зрителя переполнена"));
+            return;
+        }
+        viewer.queue.add(event);
+        scheduleDrain(viewer);
+    }
+
+    private void scheduleDrain(Viewer viewer) {
+        if (viewer.draining.compareAndSet(false, true)) {
+            writers.execute(() -> drain(viewer));
+        }
+    }
+
+    // выполняется только в одном потоке на зрителя, поэтому lastSentId не синхронизируется
+    private void drain(Viewer viewer) {
+        try {
+            Outgoing event;
+            int written = 0;
+            while (!viewer.closed && written < DRAIN_BATCH && (event = viewer.queue.poll()) != null) {
+                viewer.queued.decrementAndGet();
+                written++;
+                try {
+                    event.writeTo(viewer);
+                } catch (Exception e) {
+                    // клиент ушел без закрытия соединения
+                    log.debug("Не удалось отправить событие SSE-зрителю: {}", e.getMessage());
+                    close(viewer, e);
+                }
+            }
+        } finally {
+            viewer.draining.set(false);
+        }
+
+        if (viewer.closed) {
+            complete(viewer);
+        } else if (!viewer.queue.isEmpty()) {
+            scheduleDrain(viewer);
+        }
+    }
+
+    // эмиттер завершается потоком записи: вызов из рассылки встал бы на блокировке зависшей записи
+    private void close(Viewer viewer, Exception error) {
+        viewers.remove(viewer);
+        viewer.error = error;
+        viewer.closed = true;
+        scheduleDrain(viewer);
+    }
+
+    private void complete(Viewer viewer) {
+        if (!viewer.completed.compareAndSet(false, true)) {
+            return;
+        }
+        viewer.queue.clear();
+        try {
+            viewer.emitter.completeWithError(viewer.error);
+        } catch (Exception ignored) {
+            // эмиттер уже завершен
+        }
+    }
+
+    private void forget(Viewer viewer) {
+        viewers.remove(viewer);
+        viewer.closed = true;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ошибка сериализации события SSE", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Outgoing {
+        void writeTo(Viewer viewer) throws Exception;
+    }
+
+    private static final class Viewer {
+        private final SseEmitter emitter;
+        private final Queue<Outgoing> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile Exception error;
+        private long lastSentId = -1;
+
+        private Viewer(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.test.testtaskwebchat.startup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.service.ChatPageCache;
+import com.test.testtaskwebchat.service.ReactionAggregator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Прогрев перед приемом трафика: история и список пользователей загружаются параллельно,
+ * по загруженной истории рендерится фрагмент сообщений и прогреваются реакции,
+ * сериализация сообщений проходит один раз.
+ * ApplicationRunner выполняется до перехода readiness в ACCEPTING_TRAFFIC, поэтому
+ * балансировщик не отправит на экземпляр первый запрос, пока кеши холодные.
+ */
+@Component
+@Slf4j
+public class CacheWarmup implements ApplicationRunner {
+
+    private final ChatPageCache chatPageCache;
+    private final ReactionAggregator reactionAggregator;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long timeoutMs;
+
+    public CacheWarmup(ChatPageCache chatPageCache,
+                       ReactionAggregator reactionAggregator,
+                       ObjectMapper objectMapper,
+                       @Value("${chat.startup.warmup.enabled:true}") boolean enabled,
+                       @Value("${chat.startup.warmup.timeout-ms:30000}") long timeoutMs) {
+        this.chatPageCache = chatPageCache;
+        this.reactionAggregator = reactionAggregator;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // история читается из БД один раз, фрагмент и реакции строятся по ней
+            CompletableFuture<List<MessageDto>> history =
+                    CompletableFuture.supplyAsync(chatPageCache::getRecentMessages, executor);
+            CompletableFuture.allOf(
+                    history.thenRunAsync(chatPageCache::getMessagesHtml, executor),
+                    history.thenAcceptAsync(this::warmReactions, executor),
+                    CompletableFuture.runAsync(chatPageCache::getUsersHtml, executor)
+            ).get(timeoutMs, TimeUnit.MILLISECONDS);
+            log.info("Кеши прогреты за {} мс", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (ExecutionException | TimeoutException e) {
+            // недогретый экземпляр лучше, чем не поднявшийся
+            log.warn("Прогрев кешей не завершен: {}", e.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void warmReactions(List<MessageDto> recent) {
+        reactionAggregator.snapshot("", recent.stream().map(MessageDto::getId).toList());
+        try {
+            objectMapper.writeValueAsBytes(recent);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
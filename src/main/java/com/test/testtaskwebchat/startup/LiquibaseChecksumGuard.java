@@ -0,0 +1,125 @@
+package com.test.testtaskwebchat.startup;
+
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Пропускает Liquibase, если файлы changelog не менялись с последнего успешного прогона.
+ * Без изменений Liquibase все равно разбирает changelog, берет блокировку и сверяет
+ * checksum каждого changeSet с DATABASECHANGELOG - на выкатке это заметная часть старта.
+ * Здесь сравнивается один SHA-256 от содержимого файлов, сохраненный в changelog_checksum.
+ */
+@Component
+@Slf4j
+public class LiquibaseChecksumGuard implements BeanPostProcessor {
+
+    private static final String SELECT_CHECKSUM = "SELECT checksum FROM changelog_checksum WHERE id = 1";
+    private static final String UPSERT_CHECKSUM = """
+            MERGE INTO changelog_checksum c
+            USING (SELECT 1 AS id) s ON c.id = s.id
+            WHEN MATCHED THEN UPDATE SET checksum = ?, updated_at = CURRENT_TIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (id, checksum, updated_at) VALUES (1, ?, CURRENT_TIMESTAMP)
+            """;
+
+    private final boolean enabled;
+    // посчитан перед прогоном Liquibase, сохраняется после его успешного завершения
+    private String pendingChecksum;
+
+    public LiquibaseChecksumGuard(@Value("${chat.startup.skip-unchanged-changelog:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof SpringLiquibase liquibase) || !liquibase.isShouldRun()) {
+            return bean;
+        }
+
+        String checksum = checksum(liquibase);
+        if (checksum.equals(storedChecksum(liquibase.getDataSource()))) {
+            log.info("Changelog не изменился ({}), Liquibase пропущен", checksum.substring(0, 12));
+            liquibase.setShouldRun(false);
+        } else {
+            pendingChecksum = checksum;
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (pendingChecksum != null && bean instanceof SpringLiquibase liquibase) {
+            new JdbcTemplate(liquibase.getDataSource()).update(UPSERT_CHECKSUM, pendingChecksum, pendingChecksum);
+            pendingChecksum = null;
+        }
+        return bean;
+    }
+
+    // все файлы в каталоге master-changelog плюс фильтры контекстов и меток
+    static String checksum(SpringLiquibase liquibase) {
+        String changeLog = liquibase.getChangeLog();
+        String baseDir = changeLog.substring(changeLog.indexOf(':') + 1, changeLog.lastIndexOf('/') + 1);
+        PathMatchingResourcePatternResolver resolver = liquibase.getResourceLoader() != null
+                ? new PathMatchingResourcePatternResolver(liquibase.getResourceLoader())
+                : new PathMatchingResourcePatternResolver();
+
+        try {
+            // путь относительно каталога changelog, чтобы checksum не зависел от расположения jar
+            Map<String, Resource> files = new TreeMap<>();
+            for (Resource resource : resolver.getResources("classpath*:" + baseDir + "**/*")) {
+                if (resource.isReadable()) {
+                    String url = resource.getURL().toString();
+                    files.put(url.substring(url.lastIndexOf(baseDir)), resource);
+                }
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Objects.toString(liquibase.getContexts(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(liquibase.getLabelFilter(), "").getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[8192];
+            for (Map.Entry<String, Resource> file : files.entrySet()) {
+                digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = new DigestInputStream(file.getValue().getInputStream(), digest)) {
+                    while (in.read(buffer) != -1) {
+                        // содержимое уходит в digest
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать changelog " + changeLog, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String storedChecksum(DataSource dataSource) {
+        try {
+            return new JdbcTemplate(dataSource).queryForList(SELECT_CHECKSUM, String.class).stream()
+                    .findFirst()
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            // таблицы еще нет - первый прогон на этой БД
+            return null;
+        }
+    }
+}
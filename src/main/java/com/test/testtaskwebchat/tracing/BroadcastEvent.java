@@ -0,0 +1,12 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(BroadcastEvent.NAME)
+@Label("Broker Broadcast")
+@Description("Рассылка в /topic/messages: конвертация и постановка в очереди подписчиков")
+public class BroadcastEvent extends MessageTraceEvent {
+    public static final String NAME = "webchat.Broadcast";
+}
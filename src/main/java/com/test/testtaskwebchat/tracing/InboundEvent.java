@@ -0,0 +1,12 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(InboundEvent.NAME)
+@Label("Inbound Channel")
+@Description("От попадания SEND-фрейма во входящий канал до вызова обработчика, включая очередь и разбор JSON")
+public class InboundEvent extends MessageTraceEvent {
+    public static final String NAME = "webchat.Inbound";
+}
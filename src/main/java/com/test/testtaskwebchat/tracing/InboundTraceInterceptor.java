@@ -0,0 +1,34 @@
+package com.test.testtaskwebchat.tracing;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Начинает InboundEvent для SEND-фрейма в /app/chat.send в момент попадания во входящий канал.
+ * Событие завершает обработчик, когда уже известен id сохраненного сообщения.
+ * Остальные фреймы (набор, реакции, прочтение) проходят без копирования сообщения.
+ */
+@Component
+public class InboundTraceInterceptor implements ChannelInterceptor {
+
+    static final String SEND_DESTINATION = "/app/chat.send";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (!MessageTracing.INBOUND.isEnabled()
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !SEND_DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(headers))) {
+            return message;
+        }
+
+        InboundEvent event = new InboundEvent();
+        event.begin();
+        return MessageTracing.withHeader(message, MessageTracing.INBOUND_EVENT_HEADER, event);
+    }
+}
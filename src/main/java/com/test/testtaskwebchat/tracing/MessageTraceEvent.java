@@ -0,0 +1,29 @@
+package com.test.testtaskwebchat.tracing;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Общая часть JFR-событий трассировки сообщения: этапы связываются по messageId.
+ * Без стека вызовов и с отключенной записью создание события почти ничего не стоит,
+ * поэтому события можно держать включенными в проде.
+ */
+@Category({"WebChat", "Messages"})
+@StackTrace(false)
+public abstract class MessageTraceEvent extends Event {
+
+    @Label("Message Id")
+    long messageId;
+
+    @Label("Client Message Id")
+    String clientMessageId;
+
+    public void commitFor(MessageDto message) {
+        messageId = message.getId() != null ? message.getId() : 0;
+        clientMessageId = message.getClientMessageId();
+        commit();
+    }
+}
@@ -0,0 +1,41 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.EventType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.core.MessagePostProcessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * Служебные заголовки, которыми события трассировки передаются между потоками.
+ * Это обычные (не native) заголовки: клиенту они не отправляются.
+ */
+public final class MessageTracing {
+
+    static final String INBOUND_EVENT_HEADER = "webchat.inboundEvent";
+    static final String MESSAGE_ID_HEADER = "webchat.messageId";
+
+    static final EventType INBOUND = EventType.getEventType(InboundEvent.class);
+    static final EventType OUTBOUND = EventType.getEventType(OutboundEvent.class);
+
+    private MessageTracing() {
+    }
+
+    // событие, начатое во входящем канале; null, если запись не ведется
+    public static InboundEvent inboundEvent(MessageHeaderAccessor headers) {
+        return headers.getHeader(INBOUND_EVENT_HEADER) instanceof InboundEvent event ? event : null;
+    }
+
+    // помечает рассылку id сообщения, чтобы запись в каждую сессию попала в ту же трассу
+    public static MessagePostProcessor tagMessageId(Long messageId) {
+        return message -> OUTBOUND.isEnabled() && messageId != null
+                ? withHeader(message, MESSAGE_ID_HEADER, messageId)
+                : message;
+    }
+
+    static Message<?> withHeader(Message<?> message, String name, Object value) {
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(name, value);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+}
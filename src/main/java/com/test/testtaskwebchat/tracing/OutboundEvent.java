@@ -0,0 +1,15 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(OutboundEvent.NAME)
+@Label("Outbound Send")
+@Description("Запись сообщения в WebSocket-сессию одного подписчика")
+public class OutboundEvent extends MessageTraceEvent {
+    public static final String NAME = "webchat.Outbound";
+
+    @Label("Session Id")
+    String sessionId;
+}
@@ -0,0 +1,48 @@
+package com.test.testtaskwebchat.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Замеряет запись помеченного сообщения в сессию каждого подписчика.
+ * Событий получается по одному на подписчика, поэтому пишется только каждое sample-every
+ * сообщение (по id), зато целиком - трасса выбранного сообщения остается полной.
+ * beforeHandle и afterMessageHandled вызываются в одном потоке исходящего канала.
+ */
+@Component
+public class OutboundTraceInterceptor implements ExecutorChannelInterceptor {
+
+    private final ThreadLocal<OutboundEvent> current = new ThreadLocal<>();
+    private final int sampleEvery;
+
+    public OutboundTraceInterceptor(@Value("${chat.tracing.outbound.sample-every:100}") int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (message.getHeaders().get(MessageTracing.MESSAGE_ID_HEADER) instanceof Long messageId
+                && messageId % sampleEvery == 0) {
+            OutboundEvent event = new OutboundEvent();
+            event.messageId = messageId;
+            event.sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            event.begin();
+            current.set(event);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        OutboundEvent event = current.get();
+        if (event != null) {
+            current.remove();
+            event.commit();
+        }
+    }
+}
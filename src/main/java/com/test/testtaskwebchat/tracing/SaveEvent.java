@@ -0,0 +1,21 @@
+package com.test.testtaskwebchat.tracing;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(SaveEvent.NAME)
+@Label("Save Message")
+@Description("Проверка дублей, обработка контента и транзакция сохранения")
+public class SaveEvent extends MessageTraceEvent {
+    public static final String NAME = "webchat.Save";
+
+    @Label("Duplicate")
+    boolean duplicate;
+
+    public void commitFor(MessageDto message, boolean duplicate) {
+        this.duplicate = duplicate;
+        commitFor(message);
+    }
+}
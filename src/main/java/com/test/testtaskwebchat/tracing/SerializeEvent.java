@@ -0,0 +1,12 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name(SerializeEvent.NAME)
+@Label("JSON Conversion")
+@Description("Сериализация MessageDto в JSON для отправки через брокер")
+public class SerializeEvent extends MessageTraceEvent {
+    public static final String NAME = "webchat.Serialize";
+}
@@ -0,0 +1,239 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Офлайн-разбор записи JFR: задержки по этапам доставки сообщения и самые медленные сообщения.
+ * Запись подписчикам пишется только для каждого chat.tracing.outbound.sample-every сообщения,
+ * поэтому полные трассы и сквозное время - по этой выборке.
+ * Запуск: ./gradlew analyzeTrace -Pjfr=webchat.jfr [-Ptop=20]
+ * Запись в проде: -XX:StartFlightRecording=... и jcmd <pid> JFR.dump filename=webchat.jfr
+ */
+public final class TraceAnalyzer {
+
+    static final List<String> STAGES = List.of(
+            InboundEvent.NAME, SaveEvent.NAME, SerializeEvent.NAME, BroadcastEvent.NAME, OutboundEvent.NAME);
+
+    private TraceAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Использование: TraceAnalyzer <recording.jfr> [число выбросов]");
+            System.exit(2);
+        }
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        analyze(Path.of(args[0])).print(System.out, top);
+    }
+
+    static Report analyze(Path recording) throws IOException {
+        Map<String, List<Duration>> durations = new LinkedHashMap<>();
+        STAGES.forEach(stage -> durations.put(stage, new ArrayList<>()));
+        Map<Long, MessageTrace> traces = new HashMap<>();
+
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                int stage = STAGES.indexOf(event.getEventType().getName());
+                if (stage < 0) {
+                    continue;
+                }
+                durations.get(STAGES.get(stage)).add(event.getDuration());
+
+                long messageId = event.getLong("messageId");
+                if (messageId > 0) {
+                    traces.computeIfAbsent(messageId, MessageTrace::new).add(stage, event);
+                }
+            }
+        }
+
+        List<StageStats> stages = new ArrayList<>();
+        durations.forEach((stage, values) -> stages.add(StageStats.of(stage, values)));
+
+        List<MessageTrace> complete = traces.values().stream()
+                .filter(MessageTrace::isComplete)
+                .sorted(Comparator.comparing(MessageTrace::endToEnd).reversed())
+                .toList();
+        StageStats endToEnd = StageStats.of("end-to-end", complete.stream().map(MessageTrace::endToEnd).toList());
+
+        return new Report(stages, endToEnd, complete);
+    }
+
+    record StageStats(String stage, int count, Duration mean, Duration p50, Duration p90, Duration p99, Duration max) {
+
+        static StageStats of(String stage, List<Duration> values) {
+            long[] nanos = values.stream().mapToLong(Duration::toNanos).sorted().toArray();
+            if (nanos.length == 0) {
+                return new StageStats(stage, 0, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+            }
+            return new StageStats(stage, nanos.length,
+                    Duration.ofNanos((long) Arrays.stream(nanos).average().orElse(0)),
+                    percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99),
+                    Duration.ofNanos(nanos[nanos.length - 1]));
+        }
+
+        // nearest-rank по отсортированному массиву
+        private static Duration percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return Duration.ofNanos(sorted[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * Все события одного сообщения. Сквозное время - от попадания во входящий канал
+     * до окончания записи последнему подписчику. Время этапа - собственное: вложенные
+     * в него события того же потока (сериализация внутри рассылки) вычитаются из родителя.
+     */
+    static final class MessageTrace {
+        private final long messageId;
+        private final List<Span> spans = new ArrayList<>();
+        private final int[] stageCounts = new int[STAGES.size()];
+        private long[] stageNanos;
+        private Instant start;
+        private Instant end;
+
+        MessageTrace(long messageId) {
+            this.messageId = messageId;
+        }
+
+        void add(int stage, RecordedEvent event) {
+            long threadId = event.getThread() != null ? event.getThread().getJavaThreadId() : -1;
+            spans.add(new Span(stage, threadId, event.getStartTime(), event.getEndTime()));
+            stageNanos = null;
+            stageCounts[stage]++;
+            if (start == null || event.getStartTime().isBefore(start)) {
+                start = event.getStartTime();
+            }
+            if (end == null || event.getEndTime().isAfter(end)) {
+                end = event.getEndTime();
+            }
+        }
+
+        boolean isComplete() {
+            return stageCounts[STAGES.indexOf(InboundEvent.NAME)] > 0
+                    && stageCounts[STAGES.indexOf(OutboundEvent.NAME)] > 0;
+        }
+
+        long messageId() {
+            return messageId;
+        }
+
+        Duration endToEnd() {
+            return Duration.between(start, end);
+        }
+
+        Duration stage(String name) {
+            return Duration.ofNanos(exclusiveNanos()[STAGES.indexOf(name)]);
+        }
+
+        int deliveries() {
+            return stageCounts[STAGES.indexOf(OutboundEvent.NAME)];
+        }
+
+        // этап с наибольшей долей времени; все, что не покрыто этапами, - ожидание в очередях
+        String dominantStage() {
+            long[] nanos = exclusiveNanos();
+            long covered = 0;
+            int worst = 0;
+            for (int i = 0; i < nanos.length; i++) {
+                covered += nanos[i];
+                if (nanos[i] > nanos[worst]) {
+                    worst = i;
+                }
+            }
+            long waiting = endToEnd().toNanos() - covered;
+            return waiting > nanos[worst] ? "queues" : STAGES.get(worst);
+        }
+
+        // события одного потока вложены как области begin/end, ближайший объемлющий - на вершине стека
+        private long[] exclusiveNanos() {
+            if (stageNanos != null) {
+                return stageNanos;
+            }
+            long[] nanos = new long[STAGES.size()];
+            List<Span> ordered = new ArrayList<>(spans);
+            ordered.sort(Comparator.comparingLong(Span::threadId)
+                    .thenComparing(Span::start)
+                    .thenComparing(Span::end, Comparator.reverseOrder()));
+
+            Deque<Span> open = new ArrayDeque<>();
+            for (Span span : ordered) {
+                while (!open.isEmpty() && !open.peek().contains(span)) {
+                    open.pop();
+                }
+                long duration = span.nanos();
+                nanos[span.stage()] += duration;
+                if (!open.isEmpty()) {
+                    nanos[open.peek().stage()] -= duration;
+                }
+                open.push(span);
+            }
+            stageNanos = nanos;
+            return nanos;
+        }
+    }
+
+    private record Span(int stage, long threadId, Instant start, Instant end) {
+
+        boolean contains(Span other) {
+            return threadId == other.threadId && !other.start.isBefore(start) && !other.end.isAfter(end);
+        }
+
+        long nanos() {
+            return Duration.between(start, end).toNanos();
+        }
+    }
+
+    record Report(List<StageStats> stages, StageStats endToEnd, List<MessageTrace> slowest) {
+
+        void print(PrintStream out, int top) {
+            out.printf("%-20s %8s %10s %10s %10s %10s %10s%n", "stage", "count", "mean", "p50", "p90", "p99", "max");
+            stages.forEach(stats -> printStats(out, stats));
+            printStats(out, endToEnd);
+
+            Duration threshold = endToEnd.p99();
+            long outliers = slowest.stream().filter(trace -> trace.endToEnd().compareTo(threshold) > 0).count();
+            out.printf("%nСообщений с полной трассой: %d, медленнее p99 (%s): %d%n",
+                    slowest.size(), millis(threshold), outliers);
+
+            out.printf("%nСамые медленные сообщения (мс):%n");
+            out.printf("%10s %10s %10s %10s %10s %10s %10s %6s  %s%n",
+                    "id", "total", "inbound", "save", "json", "broadcast", "outbound", "subs", "dominant");
+            slowest.stream().limit(top).forEach(trace -> out.printf("%10d %10s %10s %10s %10s %10s %10s %6d  %s%n",
+                    trace.messageId(),
+                    millis(trace.endToEnd()),
+                    millis(trace.stage(InboundEvent.NAME)),
+                    millis(trace.stage(SaveEvent.NAME)),
+                    millis(trace.stage(SerializeEvent.NAME)),
+                    millis(trace.stage(BroadcastEvent.NAME)),
+                    millis(trace.stage(OutboundEvent.NAME)),
+                    trace.deliveries(),
+                    trace.dominantStage()));
+        }
+
+        private static void printStats(PrintStream out, StageStats stats) {
+            out.printf("%-20s %8d %10s %10s %10s %10s %10s%n", stats.stage(), stats.count(),
+                    millis(stats.mean()), millis(stats.p50()), millis(stats.p90()), millis(stats.p99()), millis(stats.max()));
+        }
+
+        private static String millis(Duration duration) {
+            return String.format("%.3f", duration.toNanos() / 1_000_000.0);
+        }
+    }
+}
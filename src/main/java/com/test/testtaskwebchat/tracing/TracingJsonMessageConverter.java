@@ -0,0 +1,24 @@
+package com.test.testtaskwebchat.tracing;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+
+// JSON-конвертер STOMP, отмечающий время сериализации сообщений чата
+public class TracingJsonMessageConverter extends MappingJackson2MessageConverter {
+
+    @Override
+    protected Object convertToInternal(Object payload, @Nullable MessageHeaders headers, @Nullable Object conversionHint) {
+        if (!(payload instanceof MessageDto message)) {
+            return super.convertToInternal(payload, headers, conversionHint);
+        }
+
+        SerializeEvent event = new SerializeEvent();
+        event.begin();
+        Object converted = super.convertToInternal(payload, headers, conversionHint);
+        event.end();
+        event.commitFor(message);
+        return converted;
+    }
+}
@@ -0,0 +1,101 @@
+package com.test.testtaskwebchat.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Хешированное колесо таймеров: один тикер на все дедлайны вместо таймера на каждую сессию.
+ * schedule() можно вызывать из любого потока, advance() - только из потока-тикера.
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<Slot<T>>[] buckets;
+    private final Queue<Slot<T>> pending = new ConcurrentLinkedQueue<>();
+    private final ObjLongConsumer<T> onExpire;
+    private final long startNanos;
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startNanos, ObjLongConsumer<T> onExpire) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.startNanos = startNanos;
+        this.onExpire = onExpire;
+    }
+
+    public void schedule(T item, long delayNanos, long nowNanos) {
+        // округляем вверх, чтобы не сработать раньше дедлайна
+        long deadlineTick = (nowNanos - startNanos + Math.max(delayNanos, 0) + tickNanos - 1) / tickNanos;
+        pending.add(new Slot<>(item, deadlineTick));
+    }
+
+    /**
+     * Прокручивает колесо до nowNanos и вызывает onExpire для всех истекших элементов.
+     * Возвращает количество сработавших дедлайнов.
+     */
+    public int advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int expired = 0;
+
+        while (currentTick <= targetTick) {
+            transferPending();
+
+            ArrayDeque<Slot<T>> bucket = buckets[(int) (currentTick & mask)];
+            Iterator<Slot<T>> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Slot<T> slot = iterator.next();
+                if (slot.deadlineTick <= currentTick) {
+                    iterator.remove();
+                    onExpire.accept(slot.item, nowNanos);
+                    expired++;
+                }
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    public int size() {
+        int size = pending.size();
+        for (ArrayDeque<Slot<T>> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private void transferPending() {
+        Slot<T> slot;
+        while ((slot = pending.poll()) != null) {
+            // просроченные дедлайны попадают в текущую ячейку и срабатывают сразу
+            long tick = Math.max(slot.deadlineTick, currentTick);
+            buckets[(int) (tick & mask)].add(slot);
+        }
+    }
+
+    private static final class Slot<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Slot(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
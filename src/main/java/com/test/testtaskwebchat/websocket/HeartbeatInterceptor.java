@@ -0,0 +1,61 @@
+package com.test.testtaskwebchat.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Любой входящий фрейм (включая STOMP heartbeat) продлевает жизнь сессии в реестре.
+ * На CONNECT запоминает в атрибутах сессии, будет ли клиент слать heartbeat:
+ * при heart-beat:0,... входящих heartbeat нет, и таймаут реестра к сессии не применяется.
+ */
+@Component
+public class HeartbeatInterceptor implements ChannelInterceptor {
+
+    static final String HEARTBEATS_ATTRIBUTE = "chat.heartbeats";
+
+    private final SessionRegistry sessionRegistry;
+    private final long heartbeatMs;
+
+    public HeartbeatInterceptor(SessionRegistry sessionRegistry,
+                                @Value("${chat.presence.heartbeat-ms:10000}") long heartbeatMs) {
+        this.sessionRegistry = sessionRegistry;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null) {
+            return message;
+        }
+
+        if (SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.CONNECT) {
+            Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+            if (attributes != null) {
+                long clientSendsEvery = StompHeaderAccessor.wrap(message).getHeartbeat()[0];
+                attributes.put(HEARTBEATS_ATTRIBUTE, clientSendsEvery > 0 && heartbeatMs > 0);
+            }
+            return message;
+        }
+
+        sessionRegistry.touch(sessionId);
+        return message;
+    }
+
+    /**
+     * Договорилась ли сессия о входящих heartbeat. Без CONNECT (например, в тестах) считается, что нет.
+     */
+    public static boolean sendsHeartbeats(Map<String, Object> sessionAttributes) {
+        return sessionAttributes != null && Boolean.TRUE.equals(sessionAttributes.get(HEARTBEATS_ATTRIBUTE));
+    }
+}
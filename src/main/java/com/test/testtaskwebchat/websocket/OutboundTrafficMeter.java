@@ -0,0 +1,75 @@
+package com.test.testtaskwebchat.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кадры и байты, отправленные клиентам, по направлениям (chat.broker.outbound.*).
+ * Позволяет сравнить нагрузку от /topic/typing с /topic/messages и остальными рассылками.
+ */
+@Component
+public class OutboundTrafficMeter implements ChannelInterceptor {
+
+    // клиент может прислать SEND в произвольный /topic, число тегов ограничиваем
+    private static final int MAX_DESTINATIONS = 32;
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public OutboundTrafficMeter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        Meters destination = meters(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        destination.frames.increment();
+        if (message.getPayload() instanceof byte[] payload) {
+            destination.bytes.increment(payload.length);
+        }
+        return message;
+    }
+
+    private Meters meters(String destination) {
+        String tag = tag(destination);
+        Meters existing = meters.get(tag);
+        if (existing != null) {
+            return existing;
+        }
+        if (meters.size() >= MAX_DESTINATIONS) {
+            tag = "other";
+        }
+        return meters.computeIfAbsent(tag, this::register);
+    }
+
+    // личные очереди сводим в один тег, иначе в имени окажется id сессии
+    private static String tag(String destination) {
+        if (destination == null) {
+            return "none";
+        }
+        if (destination.startsWith("/topic/") || destination.startsWith("/app/")) {
+            return destination;
+        }
+        return "user";
+    }
+
+    private Meters register(String tag) {
+        return new Meters(
+                meterRegistry.counter("chat.broker.outbound.frames", "destination", tag),
+                meterRegistry.counter("chat.broker.outbound.bytes", "destination", tag));
+    }
+
+    private record Meters(Counter frames, Counter bytes) {
+    }
+}
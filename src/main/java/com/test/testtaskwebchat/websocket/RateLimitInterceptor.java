@@ -0,0 +1,212 @@
+package com.test.testtaskwebchat.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.testtaskwebchat.dto.SendErrorDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты отправки сообщений в чат (/app/chat.send) на сессию и на пользователя.
+ * Сообщение сверх лимита отбрасывается, отправителю уходит ошибка в /user/queue/errors
+ * с clientMessageId и retryAfterMs - сессия при этом не закрывается.
+ * Индикатор набора ограничивается отдельной корзиной и молча прореживается,
+ * остальные направления (реакции, прочтение, подписки) лимитом не облагаются.
+ */
+@Component
+@Slf4j
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    static final String SEND_DESTINATION = "/app/chat.send";
+    static final String TYPING_DESTINATION = "/app/chat.typing";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final ConcurrentHashMap<String, TokenBucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> typingBuckets = new ConcurrentHashMap<>();
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final boolean enabled;
+    private final double sessionRate;
+    private final int sessionBurst;
+    private final double userRate;
+    private final int userBurst;
+    private final double typingRate;
+    private final int typingBurst;
+
+    private final Counter allowed;
+    private final Counter rejectedBySession;
+    private final Counter rejectedByUser;
+    private final Counter rejectedTyping;
+
+    // шаблон создается конфигурацией брокера, которая сама зависит от этого перехватчика
+    public RateLimitInterceptor(MeterRegistry meterRegistry,
+                                @Lazy SimpMessageSendingOperations messagingTemplate,
+                                @Value("${chat.rate-limit.enabled:true}") boolean enabled,
+                                @Value("${chat.rate-limit.session.per-second:5}") double sessionRate,
+                                @Value("${chat.rate-limit.session.burst:10}") int sessionBurst,
+                                @Value("${chat.rate-limit.user.per-second:10}") double userRate,
+                                @Value("${chat.rate-limit.user.burst:20}") int userBurst,
+                                @Value("${chat.rate-limit.typing.per-second:1}") double typingRate,
+                                @Value("${chat.rate-limit.typing.burst:3}") int typingBurst) {
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+        this.typingRate = typingRate;
+        this.typingBurst = typingBurst;
+
+        this.allowed = meterRegistry.counter("chat.ratelimit.allowed");
+        this.rejectedBySession = meterRegistry.counter("chat.ratelimit.rejected", "scope", "session");
+        this.rejectedByUser = meterRegistry.counter("chat.ratelimit.rejected", "scope", "user");
+        this.rejectedTyping = meterRegistry.counter("chat.ratelimit.rejected", "scope", "typing");
+        Gauge.builder("chat.ratelimit.buckets", sessionBuckets, Map::size).tag("scope", "session").register(meterRegistry);
+        Gauge.builder("chat.ratelimit.buckets", userBuckets, Map::size).tag("scope", "user").register(meterRegistry);
+        Gauge.builder("chat.ratelimit.buckets", typingBuckets, Map::size).tag("scope", "typing").register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled) {
+            return message;
+        }
+
+        MessageHeaders headers = message.getHeaders();
+        // heartbeat, SUBSCRIBE и т.д. не ограничиваем, только SEND
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SEND_DESTINATION.equals(destination)) {
+            return limitSend(message, headers);
+        }
+        if (TYPING_DESTINATION.equals(destination)) {
+            return limitTyping(message, headers);
+        }
+        return message;
+    }
+
+    private Message<?> limitSend(Message<?> message, MessageHeaders headers) {
+        long now = System.nanoTime();
+
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        TokenBucket sessionBucket = null;
+        if (sessionId != null) {
+            sessionBucket = bucket(sessionBuckets, sessionId, sessionRate, sessionBurst);
+            if (!sessionBucket.tryAcquire(now)) {
+                rejectedBySession.increment();
+                return reject(message, sessionBucket, now, "сессии " + sessionId);
+            }
+        }
+
+        Principal user = SimpMessageHeaderAccessor.getUser(headers);
+        if (user != null) {
+            TokenBucket bucket = bucket(userBuckets, user.getName(), userRate, userBurst);
+            if (!bucket.tryAcquire(now)) {
+                // отклоненный кадр не должен расходовать и лимит сессии
+                if (sessionBucket != null) {
+                    sessionBucket.refund();
+                }
+                rejectedByUser.increment();
+                return reject(message, bucket, now, "пользователя " + user.getName());
+            }
+        }
+
+        allowed.increment();
+        return message;
+    }
+
+    // состояние набора переотправляется клиентом раз в пару секунд, потеря кадра ни на что не влияет
+    private Message<?> limitTyping(Message<?> message, MessageHeaders headers) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null) {
+            return message;
+        }
+        if (!bucket(typingBuckets, sessionId, typingRate, typingBurst).tryAcquire(System.nanoTime())) {
+            rejectedTyping.increment();
+            return null;
+        }
+        return message;
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        release(event.getSessionId(), event.getUser());
+    }
+
+    @EventListener
+    public void handleSessionExpired(SessionExpiredEvent event) {
+        release(event.sessionId(), event::username);
+    }
+
+    private void release(String sessionId, Principal user) {
+        sessionBuckets.remove(sessionId);
+        typingBuckets.remove(sessionId);
+        if (user != null) {
+            long now = System.nanoTime();
+            userBuckets.computeIfPresent(user.getName(), (name, bucket) -> bucket.isIdle(now) ? null : bucket);
+        }
+    }
+
+    private static TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key, double rate, int burst) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rate, burst));
+        }
+        return bucket;
+    }
+
+    // сообщение дальше не идет, ошибка - только в сессию отправителя
+    private Message<?> reject(Message<?> message, TokenBucket bucket, long now, String scope) {
+        long retryAfterMillis = TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(now)) + 1;
+        log.warn("Превышен лимит сообщений для {}", scope);
+
+        MessageHeaders headers = message.getHeaders();
+        Principal user = SimpMessageHeaderAccessor.getUser(headers);
+        if (user != null) {
+            SimpMessageHeaderAccessor reply = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            reply.setSessionId(SimpMessageHeaderAccessor.getSessionId(headers));
+            reply.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(user.getName(), "/queue/errors",
+                    new SendErrorDto(clientMessageId(message), "Слишком много сообщений, попробуйте позже", retryAfterMillis),
+                    reply.getMessageHeaders());
+        }
+        return null;
+    }
+
+    private static String clientMessageId(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        try {
+            JsonNode clientMessageId = OBJECT_MAPPER.readTree(payload).get("clientMessageId");
+            return clientMessageId != null && clientMessageId.isTextual() ? clientMessageId.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.test.testtaskwebchat.websocket;
+
+/**
+ * Сессия не присылала heartbeat дольше таймаута и была удалена из реестра.
+ * lastSession = true, если это была последняя сессия пользователя.
+ */
+public record SessionExpiredEvent(String sessionId, String username, boolean lastSession) {
+}
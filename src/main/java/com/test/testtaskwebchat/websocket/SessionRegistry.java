@@ -0,0 +1,185 @@
+package com.test.testtaskwebchat.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр STOMP-сессий с подсчетом ссылок на пользователя.
+ * Пользователь онлайн, пока у него есть хотя бы одна живая сессия.
+ * Сессии, договорившиеся о heartbeat, но молчащие дольше sessionTimeout, вычищаются
+ * колесом таймеров; после этого соединение закрывается, и клиент переподключается.
+ */
+@Component
+@Slf4j
+public class SessionRegistry {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final ConcurrentHashMap<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> sessionCounts = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final HashedTimingWheel<SessionEntry> wheel;
+    private final long sessionTimeoutNanos;
+    private final long tickMillis;
+
+    private ScheduledExecutorService ticker;
+
+    public SessionRegistry(ApplicationEventPublisher eventPublisher,
+                           @Value("${chat.presence.session-timeout-ms:30000}") long sessionTimeoutMs,
+                           @Value("${chat.presence.reaper-tick-ms:1000}") long tickMillis) {
+        this.eventPublisher = eventPublisher;
+        this.sessionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sessionTimeoutMs);
+        this.tickMillis = tickMillis;
+        this.wheel = new HashedTimingWheel<>(tickMillis, WHEEL_SIZE, System.nanoTime(), this::onDeadline);
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                reap(System.nanoTime());
+            } catch (Exception e) {
+                log.error("Ошибка при очистке устаревших сессий", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Возвращает true, если это первая сессия пользователя (он только что появился онлайн).
+     * heartbeats = false, если клиент не шлет heartbeat: такая сессия по таймауту не удаляется.
+     */
+    public boolean register(String sessionId, String username, boolean heartbeats) {
+        return register(sessionId, username, heartbeats, System.nanoTime());
+    }
+
+    boolean register(String sessionId, String username, boolean heartbeats, long nowNanos) {
+        SessionEntry entry = new SessionEntry(sessionId, username, nowNanos);
+        boolean[] added = new boolean[1];
+        // запись сессии и счетчик пользователя меняются под одной блокировкой ключа пользователя
+        Integer count = sessionCounts.compute(username, (key, current) -> {
+            SessionEntry existing = sessions.putIfAbsent(sessionId, entry);
+            if (existing != null) {
+                // повторный chat.addUser в той же сессии
+                existing.lastActivityNanos = nowNanos;
+                return current;
+            }
+            added[0] = true;
+            return current == null ? 1 : current + 1;
+        });
+        if (!added[0]) {
+            return false;
+        }
+
+        if (heartbeats) {
+            wheel.schedule(entry, sessionTimeoutNanos, nowNanos);
+        }
+        return count == 1;
+    }
+
+    public void touch(String sessionId) {
+        touch(sessionId, System.nanoTime());
+    }
+
+    void touch(String sessionId, long nowNanos) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastActivityNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Удаляет сессию. Возвращает имя пользователя, если это была его последняя сессия, иначе null.
+     */
+    public String unregister(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        return remove(entry) == Boolean.TRUE ? entry.username : null;
+    }
+
+    public boolean isOnline(String username) {
+        return sessionCounts.containsKey(username);
+    }
+
+    public Set<String> getOnlineUsernames() {
+        return sessionCounts.keySet();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    int reap(long nowNanos) {
+        return wheel.advance(nowNanos);
+    }
+
+    private void onDeadline(SessionEntry entry, long nowNanos) {
+        if (sessions.get(entry.sessionId) != entry) {
+            // сессия уже закрыта штатно
+            return;
+        }
+
+        long idle = nowNanos - entry.lastActivityNanos;
+        if (idle < sessionTimeoutNanos) {
+            wheel.schedule(entry, sessionTimeoutNanos - idle, nowNanos);
+            return;
+        }
+
+        Boolean lastSession = remove(entry);
+        if (lastSession != null) {
+            log.info("Сессия {} пользователя {} удалена по таймауту heartbeat", entry.sessionId, entry.username);
+            eventPublisher.publishEvent(new SessionExpiredEvent(entry.sessionId, entry.username, lastSession));
+        }
+    }
+
+    /**
+     * Удаляет запись вместе с уменьшением счетчика пользователя.
+     * Возвращает null, если запись уже удалена, иначе - была ли это последняя сессия.
+     */
+    private Boolean remove(SessionEntry entry) {
+        Boolean[] last = new Boolean[1];
+        sessionCounts.computeIfPresent(entry.username, (key, count) -> {
+            if (!sessions.remove(entry.sessionId, entry)) {
+                return count;
+            }
+            last[0] = count == 1;
+            return count > 1 ? count - 1 : null;
+        });
+        return last[0];
+    }
+
+    private static final class SessionEntry {
+        private final String sessionId;
+        private final String username;
+        private volatile long lastActivityNanos;
+
+        private SessionEntry(String sessionId, String username, long lastActivityNanos) {
+            this.sessionId = sessionId;
+            this.username = username;
+            this.lastActivityNanos = lastActivityNanos;
+        }
+    }
+}
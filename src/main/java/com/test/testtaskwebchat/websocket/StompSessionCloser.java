@@ -0,0 +1,28 @@
+package com.test.testtaskwebchat.websocket;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Закрывает STOMP-сессию со стороны сервера: DISCONNECT_ACK в исходящий канал
+ * превращается в ERROR-фрейм, после которого WebSocket закрывается, а клиент переподключается.
+ */
+@Component
+public class StompSessionCloser {
+
+    private final MessageChannel clientOutboundChannel;
+
+    public StompSessionCloser(@Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.clientOutboundChannel = clientOutboundChannel;
+    }
+
+    public void close(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT_ACK);
+        accessor.setSessionId(sessionId);
+        clientOutboundChannel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.test.testtaskwebchat.websocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket в форме GCRA: все состояние - одно "теоретическое время прибытия"
+ * следующего запроса, обновляемое CAS. Пустая корзина эквивалентна только что созданной.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nowNanos) + emissionIntervalNanos;
+            if (next - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    // возврат разрешения, взятого tryAcquire, если запрос все же отклонен
+    public void refund() {
+        theoreticalArrival.addAndGet(-emissionIntervalNanos);
+    }
+
+    public long nanosUntilAvailable(long nowNanos) {
+        long arrival = theoreticalArrival.get();
+        if (arrival == Long.MIN_VALUE) {
+            return 0;
+        }
+        return Math.max(0, arrival + emissionIntervalNanos - burstToleranceNanos - nowNanos);
+    }
+
+    // корзина полностью восполнилась, ее можно удалить без изменения поведения
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
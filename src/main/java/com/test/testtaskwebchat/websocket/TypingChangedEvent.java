@@ -0,0 +1,9 @@
+package com.test.testtaskwebchat.websocket;
+
+import java.util.List;
+
+/**
+ * Изменился список печатающих пользователей, usernames - полный текущий список.
+ */
+public record TypingChangedEvent(List<String> usernames) {
+}
@@ -0,0 +1,146 @@
+package com.test.testtaskwebchat.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Индикатор "печатает..." без записи в БД. На пользователя одна запись: повторные события
+ * только продлевают ее, истечение отслеживает общее колесо таймеров. Раз в broadcast-interval
+ * публикуется полный список печатающих и только если он изменился, поэтому частота кадров
+ * не зависит ни от числа печатающих, ни от того, как часто клиенты присылают события.
+ */
+@Component
+@Slf4j
+public class TypingTracker {
+
+    private static final int WHEEL_SIZE = 64;
+
+    private final ConcurrentHashMap<String, Typist> typists = new ConcurrentHashMap<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final ApplicationEventPublisher eventPublisher;
+    private final HashedTimingWheel<Typist> wheel;
+    private final long ttlNanos;
+    private final long tickMillis;
+
+    // последний разосланный список, меняется только в потоке-тикере
+    private List<String> published = List.of();
+    private ScheduledExecutorService ticker;
+
+    public TypingTracker(ApplicationEventPublisher eventPublisher,
+                         @Value("${chat.typing.ttl-ms:5000}") long ttlMs,
+                         @Value("${chat.typing.broadcast-interval-ms:500}") long tickMillis) {
+        this.eventPublisher = eventPublisher;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.tickMillis = tickMillis;
+        this.wheel = new HashedTimingWheel<>(tickMillis, WHEEL_SIZE, System.nanoTime(), this::onDeadline);
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "typing-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                tick(System.nanoTime());
+            } catch (Exception e) {
+                log.error("Ошибка при рассылке индикатора набора", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public void typing(String username, boolean typing) {
+        if (typing) {
+            started(username, System.nanoTime());
+        } else {
+            stopped(username);
+        }
+    }
+
+    void started(String username, long nowNanos) {
+        Typist created = new Typist(username, nowNanos);
+        Typist existing = typists.putIfAbsent(username, created);
+        if (existing != null) {
+            existing.lastSeenNanos = nowNanos;
+            return;
+        }
+        wheel.schedule(created, ttlNanos, nowNanos);
+        changed.set(true);
+    }
+
+    // сообщение отправлено, набор отменен или закрыта последняя сессия
+    public void stopped(String username) {
+        if (typists.remove(username) != null) {
+            changed.set(true);
+        }
+    }
+
+    public List<String> getTyping() {
+        return typists.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Прокручивает колесо и публикует список, если он изменился с прошлой рассылки.
+     * Возвращает true, если событие было опубликовано.
+     */
+    boolean tick(long nowNanos) {
+        wheel.advance(nowNanos);
+        if (!changed.getAndSet(false)) {
+            return false;
+        }
+        // начал и закончил набор между рассылками - клиенты ничего не получат
+        List<String> current = getTyping();
+        if (current.equals(published)) {
+            return false;
+        }
+        published = current;
+        eventPublisher.publishEvent(new TypingChangedEvent(current));
+        return true;
+    }
+
+    private void onDeadline(Typist typist, long nowNanos) {
+        if (typists.get(typist.username) != typist) {
+            return;
+        }
+
+        long idle = nowNanos - typist.lastSeenNanos;
+        if (idle < ttlNanos) {
+            wheel.schedule(typist, ttlNanos - idle, nowNanos);
+            return;
+        }
+
+        if (typists.remove(typist.username, typist)) {
+            changed.set(true);
+        }
+    }
+
+    private static final class Typist {
+        private final String username;
+        private volatile long lastSeenNanos;
+
+        private Typist(String username, long lastSeenNanos) {
+            this.username = username;
+            this.lastSeenNanos = lastSeenNanos;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.test.testtaskwebchat.websocket;
 
 import com.test.testtaskwebchat.dto.UserDto;
+import com.test.testtaskwebchat.service.ChatPageCache;
 import com.test.testtaskwebchat.service.UserService;
+import com.test.testtaskwebchat.sse.SseBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -12,7 +14,6 @@ import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @RequiredArgsConstructor
@@ -21,8 +22,11 @@ public class WebSocketEventListener {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final UserService userService;
-
-    private final ConcurrentHashMap<String, String> sessionUsernameMap = new ConcurrentHashMap<>();
+    private final SessionRegistry sessionRegistry;
+    private final SseBroadcaster sseBroadcaster;
+    private final ChatPageCache chatPageCache;
+    private final TypingTracker typingTracker;
+    private final StompSessionCloser sessionCloser;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
@@ -34,26 +38,49 @@ public class WebSocketEventListener {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
         String sessionId = headerAccessor.getSessionId();
 
-        String username = sessionUsernameMap.get(sessionId);
+        // пользователь уходит в оффлайн только после закрытия последней вкладки
+        String username = sessionRegistry.unregister(sessionId);
         if (username != null) {
-            log.info("Пользователь отключился: {}", username);
-            sessionUsernameMap.remove(sessionId);
-            userService.userDisconnected(username);
+            userOffline(username);
+        }
+    }
 
-            List<UserDto> users = userService.getAllUsers();
-            messagingTemplate.convertAndSend("/topic/users", users);
+    // соединение могло остаться открытым: закрываем, чтобы клиент переподключился и снова стал онлайн
+    @EventListener
+    public void handleSessionExpired(SessionExpiredEvent event) {
+        if (event.lastSession()) {
+            userOffline(event.username());
         }
+        sessionCloser.close(event.sessionId());
+    }
+
+    // индикатор набора не сохраняется, рассылается только текущий список
+    @EventListener
+    public void handleTypingChanged(TypingChangedEvent event) {
+        messagingTemplate.convertAndSend("/topic/typing", event.usernames());
     }
 
-    public void registerUserSession(String sessionId, String username) {
-        sessionUsernameMap.put(sessionId, username);
+    public void registerUserSession(String sessionId, String username, boolean heartbeats) {
+        boolean firstSession = sessionRegistry.register(sessionId, username, heartbeats);
         userService.userConnected(username);
 
-        List<UserDto> users = userService.getAllUsers();
-        messagingTemplate.convertAndSend("/topic/users", users);
+        if (firstSession) {
+            broadcastUsers();
+            sseBroadcaster.publishPresence(userService.getUserStatus(username));
+        }
     }
 
-    public void removeUserSession(String sessionId) {
-        sessionUsernameMap.remove(sessionId);
+    private void userOffline(String username) {
+        log.info("Пользователь отключился: {}", username);
+        typingTracker.stopped(username);
+        userService.userDisconnected(username);
+        broadcastUsers();
+        sseBroadcaster.publishPresence(userService.getUserStatus(username));
+    }
+
+    private void broadcastUsers() {
+        chatPageCache.usersChanged();
+        List<UserDto> users = userService.getAllUsers();
+        messagingTemplate.convertAndSend("/topic/users", users);
     }
 }
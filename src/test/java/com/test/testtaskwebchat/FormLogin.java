@@ -0,0 +1,62 @@
+package com.test.testtaskwebchat;
+
+import com.test.testtaskwebchat.service.UserService;
+
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Вход через форму логина запущенного приложения, для нагрузочных тестов с реальными сессиями.
+ */
+public final class FormLogin {
+
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    private FormLogin() {
+    }
+
+    /**
+     * Регистрирует пользователя при необходимости и возвращает JSESSIONID после входа.
+     */
+    public static String login(UserService userService, int port, String username, String password) throws Exception {
+        if (userService.findByUsername(username).isEmpty()) {
+            userService.registerNewUser(username, password);
+        }
+
+        CookieManager cookies = new CookieManager();
+        HttpClient client = HttpClient.newBuilder().cookieHandler(cookies).build();
+        String baseUrl = "http://localhost:" + port;
+
+        String loginPage = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher csrf = CSRF.matcher(loginPage);
+        if (!csrf.find()) {
+            throw new IllegalStateException("CSRF-токен не найден на странице логина");
+        }
+
+        String form = "username=" + encode(username) + "&password=" + encode(password) + "&_csrf=" + encode(csrf.group(1));
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        return cookies.getCookieStore().getCookies().stream()
+                .filter(cookie -> "JSESSIONID".equals(cookie.getName()))
+                .map(HttpCookie::getValue)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Нет JSESSIONID после логина"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
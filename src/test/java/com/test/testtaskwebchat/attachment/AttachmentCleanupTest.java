@@ -0,0 +1,104 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.repository.AttachmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AttachmentCleanupTest {
+
+    private static final long TTL_MS = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path root;
+
+    private AttachmentRepository attachmentRepository;
+    private AttachmentStore store;
+    private AttachmentCleanup cleanup;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        attachmentRepository = mock(AttachmentRepository.class);
+        store = new AttachmentStore(root);
+        cleanup = new AttachmentCleanup(attachmentRepository, store,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), TTL_MS, 3_600_000);
+        now = Instant.now();
+    }
+
+    @Test
+    void removesUnsentRowsAndUnreferencedFiles() throws IOException {
+        String orphan = storeOld("только в неотправленном");
+        String shared = storeOld("есть и в отправленном сообщении");
+        // то же содержимое только что загрузили снова, ссылка на него вот-вот появится
+        String reuploaded = storeOld("загружено повторно");
+        store.store(new ByteArrayInputStream("загружено повторно".getBytes(StandardCharsets.UTF_8)), 1024);
+
+        when(attachmentRepository.findByMessageIdIsNullAndCreatedAtBefore(any(), any()))
+                .thenReturn(List.of(unsent(1L, orphan), unsent(2L, shared), unsent(3L, reuploaded)))
+                .thenReturn(List.of());
+        when(attachmentRepository.deleteUnsent(anyCollection())).thenReturn(3);
+        when(attachmentRepository.existsBySha256(shared)).thenReturn(true);
+
+        assertEquals(3, cleanup.cleanup(now));
+
+        verify(attachmentRepository).deleteUnsent(List.of(1L, 2L, 3L));
+        assertFalse(Files.exists(store.path(orphan)));
+        assertTrue(Files.exists(store.path(shared)));
+        assertTrue(Files.exists(store.path(reuploaded)));
+    }
+
+    @Test
+    void keepsFilesWhenRowsWereSentMeanwhile() throws IOException {
+        String sha256 = storeOld("успели отправить");
+        when(attachmentRepository.findByMessageIdIsNullAndCreatedAtBefore(any(), any()))
+                .thenReturn(List.of(unsent(1L, sha256)));
+        // строку прикрепили к сообщению между выборкой и удалением
+        when(attachmentRepository.deleteUnsent(anyCollection())).thenReturn(0);
+
+        assertEquals(0, cleanup.cleanup(now));
+
+        assertTrue(Files.exists(store.path(sha256)));
+        verify(attachmentRepository, never()).existsBySha256(anyString());
+    }
+
+    @Test
+    void removesStalePartialUploads() throws IOException {
+        Path stale = Files.createFile(root.resolve("incoming").resolve("upload-1.part"));
+        Files.setLastModifiedTime(stale, FileTime.from(now.minus(Duration.ofDays(2))));
+        Path active = Files.createFile(root.resolve("incoming").resolve("upload-2.part"));
+        when(attachmentRepository.findByMessageIdIsNullAndCreatedAtBefore(any(), any())).thenReturn(List.of());
+
+        cleanup.cleanup(now);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(active));
+    }
+
+    private String storeOld(String content) throws IOException {
+        String sha256 = store.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), 1024).sha256();
+        Files.setLastModifiedTime(store.path(sha256), FileTime.from(now.minus(Duration.ofDays(2))));
+        return sha256;
+    }
+
+    private static Attachment unsent(Long id, String sha256) {
+        return Attachment.builder().id(id).userId(1L).sha256(sha256).build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.test.testtaskwebchat.attachment;
+
+import com.test.testtaskwebchat.model.Attachment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentDownloadTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path root;
+
+    private AttachmentDownload download;
+    private Attachment attachment;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        AttachmentStore store = new AttachmentStore(root);
+        AttachmentStore.StoredBlob blob = store.store(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.US_ASCII)), 1024);
+        download = new AttachmentDownload(store);
+        attachment = Attachment.builder()
+                .id(1L)
+                .sha256(blob.sha256())
+                .size(blob.size())
+                .contentType("text/plain")
+                .fileName("digits.txt")
+                .build();
+        etag = "\"" + blob.sha256() + "\"";
+    }
+
+    @Test
+    void sendsWholeFileWithValidators() throws IOException {
+        MockHttpServletResponse response = send(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        // text/plain не отдается inline
+        assertEquals("application/octet-stream", response.getContentType());
+        assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).startsWith("attachment"));
+    }
+
+    @Test
+    void sendsRequestedRange() throws IOException {
+        assertPartial("bytes=2-5", "bytes 2-5/10", "2345");
+        // конец за пределами файла обрезается по размеру
+        assertPartial("bytes=8-100", "bytes 8-9/10", "89");
+    }
+
+    @Test
+    void sendsSuffixAndOpenEndedRanges() throws IOException {
+        assertPartial("bytes=-3", "bytes 7-9/10", "789");
+        assertPartial("bytes=4-", "bytes 4-9/10", "456789");
+        // суффикс длиннее файла - весь файл
+        assertPartial("bytes=-50", "bytes 0-9/10", CONTENT);
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws IOException {
+        for (String range : new String[]{"bytes=10-", "bytes=20-30", "bytes=-0"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = send(request);
+
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals(0, response.getContentAsByteArray().length, range);
+        }
+    }
+
+    @Test
+    void ifRangeWithOtherEtagSendsWholeFile() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"0000\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(CONTENT, response.getContentAsString());
+
+        request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, send(request).getStatus());
+    }
+
+    @Test
+    void ifNoneMatchReturnsNotModified() throws IOException {
+        for (String ifNoneMatch : new String[]{etag, "\"0000\", W/" + etag, "*"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+
+            MockHttpServletResponse response = send(request);
+
+            assertEquals(304, response.getStatus(), ifNoneMatch);
+            assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+            assertEquals(0, response.getContentAsByteArray().length);
+        }
+
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0000\"");
+        assertEquals(200, send(request).getStatus());
+    }
+
+    private void assertPartial(String range, String contentRange, String body) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus(), range);
+        assertEquals(contentRange, response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        assertEquals(body, response.getContentAsString(), range);
+        assertEquals(body.length(), response.getContentLengthLong(), range);
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        download.send(attachment, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/chat/attachments/1");
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.testtaskwebchat.attachment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void identicalUploadsAreStoredOnce() throws IOException {
+        AttachmentStore store = new AttachmentStore(root);
+        byte[] content = "одинаковое содержимое".getBytes(StandardCharsets.UTF_8);
+
+        AttachmentStore.StoredBlob first = store.store(new ByteArrayInputStream(content), 1024);
+        AttachmentStore.StoredBlob second = store.store(new ByteArrayInputStream(content), 1024);
+
+        assertEquals(first, second);
+        assertEquals(content.length, first.size());
+        assertEquals(List.of(store.path(first.sha256())), blobs());
+        assertArrayEquals(content, Files.readAllBytes(store.path(first.sha256())));
+        assertEquals(0, incomingFiles());
+
+        AttachmentStore.StoredBlob other = store.store(new ByteArrayInputStream(new byte[]{1, 2, 3}), 1024);
+        assertNotEquals(first.sha256(), other.sha256());
+        assertEquals(2, blobs().size());
+    }
+
+    @Test
+    void tooLargeUploadLeavesNoFiles() throws IOException {
+        AttachmentStore store = new AttachmentStore(root);
+
+        AttachmentTooLargeException e = assertThrows(AttachmentTooLargeException.class,
+                () -> store.store(new ByteArrayInputStream(new byte[200 * 1024]), 100 * 1024));
+
+        assertEquals(100 * 1024, e.getMaxSize());
+        assertEquals(0, incomingFiles());
+        assertTrue(blobs().isEmpty());
+    }
+
+    @Test
+    void rejectsPathOutsideOfStore() {
+        AttachmentStore store = new AttachmentStore(root);
+
+        assertThrows(IllegalArgumentException.class, () -> store.path("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.path("ABC"));
+    }
+
+    private List<Path> blobs() throws IOException {
+        Path incoming = root.resolve("incoming");
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).filter(file -> !file.startsWith(incoming)).toList();
+        }
+    }
+
+    private long incomingFiles() throws IOException {
+        try (Stream<Path> files = Files.list(root.resolve("incoming"))) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.test.testtaskwebchat.attachment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartReaderTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    void readsPartsAfterPreamble() throws IOException {
+        String body = "preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n"
+                + "\r\n"
+                + "hello\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + "line 1\r\nline 2\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        MultipartReader reader = new MultipartReader(stream(body.getBytes(StandardCharsets.UTF_8), 8192), BOUNDARY);
+
+        MultipartReader.Part first = reader.next();
+        assertEquals("form-data; name=\"comment\"", first.header("content-disposition"));
+        assertEquals("hello", new String(first.body().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartReader.Part second = reader.next();
+        assertEquals("text/plain", second.header("Content-Type"));
+        assertEquals("line 1\r\nline 2", new String(second.body().readAllBytes(), StandardCharsets.UTF_8));
+
+        assertNull(reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void binaryContentSurvivesTinyReadsAndDelimiterPrefixes() throws IOException {
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+        // начала разделителя внутри содержимого не должны обрывать часть
+        byte[] prefix = ("\r\n--" + BOUNDARY.substring(0, 20)).getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(prefix, 0, content, 500, prefix.length);
+        System.arraycopy(prefix, 0, content, content.length - prefix.length, prefix.length);
+
+        byte[] body = multipart(content);
+        for (int chunk : new int[]{1, 7, 64, 100_000}) {
+            MultipartReader reader = new MultipartReader(stream(body, chunk), BOUNDARY);
+            MultipartReader.Part part = reader.next();
+            assertArrayEquals(content, readInSmallPieces(part.body()), "chunk " + chunk);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void unreadPartIsSkipped() throws IOException {
+        byte[] large = new byte[50_000];
+        String tail = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"second\"\r\n\r\n"
+                + "second\r\n"
+                + "--" + BOUNDARY + "--";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"first\"\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        body.write(large);
+        body.write(("\r\n" + tail).getBytes(StandardCharsets.ISO_8859_1));
+
+        MultipartReader reader = new MultipartReader(stream(body.toByteArray(), 1000), BOUNDARY);
+        reader.next().body().read(new byte[10]);
+        MultipartReader.Part second = reader.next();
+        assertEquals("form-data; name=\"second\"", second.header("Content-Disposition"));
+        assertEquals("second", new String(second.body().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void truncatedBodyIsRejected() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\n\r\n"
+                + "no closing delimiter";
+        MultipartReader reader = new MultipartReader(stream(body.getBytes(StandardCharsets.UTF_8), 8192), BOUNDARY);
+        MultipartReader.Part part = reader.next();
+
+        assertThrows(MalformedMultipartException.class, () -> part.body().readAllBytes());
+    }
+
+    @Test
+    void oversizedHeadersAreRejected() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "X-Padding: " + "a".repeat(MultipartReader.MAX_HEADER_SIZE) + "\r\n\r\n"
+                + "data\r\n--" + BOUNDARY + "--";
+        MultipartReader reader = new MultipartReader(stream(body.getBytes(StandardCharsets.UTF_8), 8192), BOUNDARY);
+
+        assertThrows(MalformedMultipartException.class, reader::next);
+    }
+
+    private static byte[] multipart(byte[] content) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"random.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        body.write(content);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return body.toByteArray();
+    }
+
+    private static byte[] readInSmallPieces(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] piece = new byte[333];
+        int read;
+        while ((read = in.read(piece)) != -1) {
+            out.write(piece, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // поток, отдающий не больше chunk байт за вызов, как сокет
+    private static InputStream stream(byte[] data, int chunk) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] target, int offset, int length) {
+                return super.read(target, offset, Math.min(length, chunk));
+            }
+        };
+    }
+}
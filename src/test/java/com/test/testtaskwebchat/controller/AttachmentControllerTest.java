@@ -0,0 +1,65 @@
+package com.test.testtaskwebchat.controller;
+
+import com.test.testtaskwebchat.attachment.AttachmentDownload;
+import com.test.testtaskwebchat.attachment.AttachmentService;
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.model.ChatUser;
+import com.test.testtaskwebchat.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AttachmentControllerTest {
+
+    private AttachmentService attachmentService;
+    private AttachmentDownload attachmentDownload;
+    private AttachmentController controller;
+
+    @BeforeEach
+    void setUp() {
+        attachmentService = mock(AttachmentService.class);
+        attachmentDownload = mock(AttachmentDownload.class);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(Optional.of(ChatUser.builder().id(1L).username("alice").build()));
+        when(userService.findByUsername("bob")).thenReturn(Optional.of(ChatUser.builder().id(2L).username("bob").build()));
+        controller = new AttachmentController(attachmentService, attachmentDownload, userService);
+    }
+
+    @Test
+    void unsentAttachmentIsVisibleOnlyToUploader() throws Exception {
+        Attachment attachment = Attachment.builder().id(10L).userId(1L).build();
+        when(attachmentService.find(10L)).thenReturn(Optional.of(attachment));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> download(10L, "bob"));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+        verifyNoInteractions(attachmentDownload);
+
+        download(10L, "alice");
+        verify(attachmentDownload).send(eq(attachment), any(), any());
+    }
+
+    @Test
+    void sentAttachmentIsVisibleToEveryone() throws Exception {
+        Attachment attachment = Attachment.builder().id(11L).userId(1L).messageId(5L).build();
+        when(attachmentService.find(11L)).thenReturn(Optional.of(attachment));
+
+        download(11L, "bob");
+        verify(attachmentDownload).send(eq(attachment), any(), any());
+    }
+
+    private void download(Long id, String username) throws Exception {
+        UserDetails user = User.withUsername(username).password("x").roles("USER").build();
+        controller.download(id, new MockHttpServletRequest(), new MockHttpServletResponse(), user);
+    }
+}
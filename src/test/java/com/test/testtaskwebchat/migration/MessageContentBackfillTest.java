@@ -0,0 +1,83 @@
+package com.test.testtaskwebchat.migration;
+
+import com.test.testtaskwebchat.model.ChatMessage;
+import com.test.testtaskwebchat.service.MessageContentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageContentBackfillTest {
+
+    private final DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:content-backfill;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    @BeforeEach
+    void setUp() {
+        jdbc.execute("DROP TABLE IF EXISTS messages");
+        // колонки в состоянии после 005-add-message-content-storage
+        jdbc.execute("CREATE TABLE messages (id BIGINT PRIMARY KEY, content CLOB, " +
+                "content_preview VARCHAR(280), content_length INT, content_compressed BLOB)");
+    }
+
+    @Test
+    void migratesLegacyRowsInBatches() throws Exception {
+        String shortText = "привет";
+        String mediumText = "м".repeat(ChatMessage.PREVIEW_LENGTH + 10);
+        String longText = "повтор ".repeat(500);
+        jdbc.update("INSERT INTO messages (id, content) VALUES (1, ?)", shortText);
+        jdbc.update("INSERT INTO messages (id, content) VALUES (2, ?)", mediumText);
+        jdbc.update("INSERT INTO messages (id, content) VALUES (3, ?)", longText);
+        // строка, записанная новой версией, не трогается
+        jdbc.update("INSERT INTO messages (id, content_preview, content_length) VALUES (4, 'новое', 5)");
+
+        MessageContentBackfill backfill = new MessageContentBackfill(dataSource, true, 1024, false, 2, 0);
+        assertEquals(3, backfill.backfill());
+
+        assertEquals(shortText, decode(1));
+        assertEquals(mediumText, decode(2));
+        assertEquals(longText, decode(3));
+        assertNull(row(1).get("CONTENT"));
+        assertNotNull(row(3).get("CONTENT_COMPRESSED"));
+        assertEquals(longText.length(), row(3).get("CONTENT_LENGTH"));
+        assertEquals("новое", decode(4));
+
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM messages WHERE content_length IS NULL", Integer.class));
+        // повторный запуск ничего не делает
+        assertEquals(0, backfill.backfill());
+    }
+
+    @Test
+    void keepsContentForPreviousVersionWhileWriteContentIsOn() throws Exception {
+        String shortText = "привет";
+        String longText = "повтор ".repeat(500);
+        jdbc.update("INSERT INTO messages (id, content) VALUES (1, ?)", shortText);
+        jdbc.update("INSERT INTO messages (id, content) VALUES (2, ?)", longText);
+
+        MessageContentBackfill backfill = new MessageContentBackfill(dataSource, true, 1024, true, 2, 0);
+        assertEquals(2, backfill.backfill());
+
+        // старая версия читает только content
+        assertEquals(shortText, jdbc.queryForObject("SELECT content FROM messages WHERE id = 1", String.class));
+        assertEquals(longText, jdbc.queryForObject("SELECT content FROM messages WHERE id = 2", String.class));
+        assertNull(row(2).get("CONTENT_COMPRESSED"));
+        assertEquals(longText.substring(0, ChatMessage.PREVIEW_LENGTH), row(2).get("CONTENT_PREVIEW"));
+        assertEquals(longText.length(), row(2).get("CONTENT_LENGTH"));
+        assertEquals(longText, decode(2));
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbc.queryForMap("SELECT * FROM messages WHERE id = ?", id);
+    }
+
+    private String decode(long id) {
+        return jdbc.queryForObject("SELECT content_preview, content, content_compressed FROM messages WHERE id = ?",
+                (rs, n) -> MessageContentCodec.decode(rs.getString(1), rs.getString(2), rs.getBytes(3)), id);
+    }
+}
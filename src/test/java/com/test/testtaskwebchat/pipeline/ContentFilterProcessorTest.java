@@ -0,0 +1,91 @@
+package com.test.testtaskwebchat.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentFilterProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void masksWholeBannedWordsIgnoringCase() throws Exception {
+        Path words = dir.resolve("words.txt");
+        Files.writeString(words, "# комментарий\nspam\nплохое\n");
+        ContentFilterProcessor filter = new ContentFilterProcessor(words, true, 5000);
+        filter.reloadIfChanged();
+
+        assertEquals("no **** please", filter.process("alice", "no SPAM please"));
+        assertEquals("это ****** слово", filter.process("alice", "это плохое слово"));
+        assertEquals("spammer is fine", filter.process("alice", "spammer is fine"));
+    }
+
+    @Test
+    void rejectsLinks() {
+        ContentFilterProcessor filter = new ContentFilterProcessor(dir.resolve("missing.txt"), true, 5000);
+        filter.reloadIfChanged();
+
+        assertThrows(MessageRejectedException.class, () -> filter.process("alice", "see https://example.com"));
+        assertThrows(MessageRejectedException.class, () -> filter.process("alice", "WWW.example.com"));
+        assertEquals("hello", filter.process("alice", "hello"));
+    }
+
+    @Test
+    void reloadsDictionaryWhenFileChanges() throws Exception {
+        Path words = dir.resolve("words.txt");
+        Files.writeString(words, "foo\n");
+        ContentFilterProcessor filter = new ContentFilterProcessor(words, false, 5000);
+        filter.reloadIfChanged();
+        assertEquals("*** bar", filter.process("alice", "foo bar"));
+
+        Files.writeString(words, "bar\n");
+        Files.setLastModifiedTime(words, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        filter.reloadIfChanged();
+        assertEquals("foo ***", filter.process("alice", "foo bar"));
+    }
+
+    @Test
+    void matcherFindsSameOccurrencesAsNaiveSearch() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            List<String> patterns = new ArrayList<>();
+            AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                String pattern = randomString(random, 1 + random.nextInt(4));
+                patterns.add(pattern);
+                builder.add(pattern, i);
+            }
+            String text = randomString(random, random.nextInt(60));
+
+            Set<String> found = new HashSet<>();
+            builder.build().scan(text, (start, end, tag) -> found.add(start + ":" + end));
+
+            Set<String> expected = new HashSet<>();
+            for (String pattern : patterns) {
+                for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+                    expected.add(i + ":" + (i + pattern.length()));
+                }
+            }
+            assertEquals(expected, found, "patterns=" + patterns + " text=" + text);
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatPageCacheTest {
+
+    private ITemplateEngine templateEngine;
+    private ChatService chatService;
+    private UserService userService;
+    private ChatPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = mock(ITemplateEngine.class);
+        chatService = mock(ChatService.class);
+        userService = mock(UserService.class);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class))).thenReturn("<html/>");
+        when(chatService.getLastMessages()).thenReturn(List.of(message(2L), message(1L)));
+        when(userService.getAllUsers()).thenReturn(List.of());
+        cache = new ChatPageCache(templateEngine, chatService, userService);
+    }
+
+    @Test
+    void fragmentIsRenderedOnceUntilInvalidated() {
+        cache.getMessagesHtml();
+        cache.getMessagesHtml();
+        verify(templateEngine, times(1)).process(eq("fragments/chat-messages"), eq(Set.of("messages")), any(IContext.class));
+
+        cache.messageAdded(message(3L));
+        cache.getMessagesHtml();
+        verify(templateEngine, times(2)).process(eq("fragments/chat-messages"), eq(Set.of("messages")), any(IContext.class));
+    }
+
+    @Test
+    void newMessagesAreAppendedWithoutReloadingHistory() {
+        assertEquals(List.of(1L, 2L), ids(cache.getRecentMessages()));
+
+        cache.messageAdded(message(3L));
+        cache.messageAdded(message(3L));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(cache.getRecentMessages()));
+        verify(chatService, times(1)).getLastMessages();
+    }
+
+    @Test
+    void usersChangeDoesNotRerenderMessages() {
+        cache.getMessagesHtml();
+        cache.getUsersHtml();
+
+        cache.usersChanged();
+        cache.getMessagesHtml();
+        cache.getUsersHtml();
+
+        verify(templateEngine, times(1)).process(eq("fragments/chat-messages"), anySet(), any(IContext.class));
+        verify(templateEngine, times(2)).process(eq("fragments/chat-users"), anySet(), any(IContext.class));
+    }
+
+    private static MessageDto message(long id) {
+        return new MessageDto(id, "text " + id, "alice", LocalDateTime.now());
+    }
+
+    private static List<Long> ids(List<MessageDto> messages) {
+        return messages.stream().map(MessageDto::getId).toList();
+    }
+}
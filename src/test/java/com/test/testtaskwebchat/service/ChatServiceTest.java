@@ -0,0 +1,69 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.attachment.AttachmentService;
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.model.Attachment;
+import com.test.testtaskwebchat.model.ChatMessage;
+import com.test.testtaskwebchat.model.ChatUser;
+import com.test.testtaskwebchat.pipeline.ContentFilterProcessor;
+import com.test.testtaskwebchat.pipeline.MessagePipeline;
+import com.test.testtaskwebchat.pipeline.MessageRejectedException;
+import com.test.testtaskwebchat.repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private AttachmentService attachmentService;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        ChatMessageRepository messageRepository = mock(ChatMessageRepository.class);
+        UserService userService = mock(UserService.class);
+        attachmentService = mock(AttachmentService.class);
+        when(userService.findByUsername("alice"))
+                .thenReturn(Optional.of(ChatUser.builder().id(1L).username("alice").build()));
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            message.setId(1L);
+            return message;
+        });
+        when(attachmentService.findUnsent(any(), anyCollection())).thenReturn(List.of(Attachment.builder()
+                .id(7L)
+                .fileName("www.example.pdf")
+                .contentType("application/pdf")
+                .size(10L)
+                .build()));
+
+        ContentFilterProcessor filter = new ContentFilterProcessor(dir.resolve("missing.txt"), true, 5000);
+        filter.reloadIfChanged();
+        chatService = new ChatService(messageRepository, userService, new MessagePipeline(List.of(filter)),
+                new MessageContentCodec(1024, true), attachmentService);
+    }
+
+    @Test
+    void attachmentDescriptionIsNotFiltered() {
+        MessageDto saved = chatService.saveMessage("", "alice", "c-1", List.of(7L));
+
+        assertEquals("📎 www.example.pdf", saved.getContent());
+    }
+
+    @Test
+    void typedTextWithAttachmentIsStillFiltered() {
+        assertThrows(MessageRejectedException.class,
+                () -> chatService.saveMessage("см. www.example.com", "alice", "c-2", List.of(7L)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageContentCodecTest {
+
+    private static final int THRESHOLD = 1024;
+
+    @Test
+    void shortMessageIsStoredAsPreviewOnly() {
+        MessageContentCodec.StoredContent stored = MessageContentCodec.encode("привет", THRESHOLD, false);
+
+        assertEquals("привет", stored.preview());
+        assertNull(stored.content());
+        assertNull(stored.compressed());
+        assertEquals("привет", decode(stored));
+    }
+
+    @Test
+    void mediumMessageKeepsFullTextUncompressed() {
+        String text = "а".repeat(ChatMessage.PREVIEW_LENGTH + 100);
+        MessageContentCodec.StoredContent stored = MessageContentCodec.encode(text, THRESHOLD, false);
+
+        assertEquals(ChatMessage.PREVIEW_LENGTH, stored.preview().length());
+        assertEquals(text, stored.content());
+        assertNull(stored.compressed());
+        assertEquals(text.length(), stored.length());
+    }
+
+    @Test
+    void longMessageIsCompressedAndRestored() {
+        String text = "Длинное сообщение с повторами. ".repeat(300);
+        MessageContentCodec.StoredContent stored = MessageContentCodec.encode(text, THRESHOLD, false);
+
+        assertNull(stored.content());
+        assertNotNull(stored.compressed());
+        assertTrue(stored.compressed().length < text.length() / 4);
+        assertEquals(text, decode(stored));
+    }
+
+    @Test
+    void previewDoesNotSplitSurrogatePair() {
+        String text = "x".repeat(ChatMessage.PREVIEW_LENGTH - 1) + "😀" + "y".repeat(10);
+        MessageContentCodec.StoredContent stored = MessageContentCodec.encode(text, THRESHOLD, false);
+
+        assertEquals(ChatMessage.PREVIEW_LENGTH - 1, stored.preview().length());
+        assertFalse(Character.isHighSurrogate(stored.preview().charAt(stored.preview().length() - 1)));
+    }
+
+    @Test
+    void writeContentKeepsFullTextForPreviousVersion() {
+        for (String text : new String[]{"привет", "Длинное сообщение с повторами. ".repeat(300)}) {
+            MessageContentCodec.StoredContent stored = MessageContentCodec.encode(text, THRESHOLD, true);
+
+            assertEquals(text, stored.content());
+            assertNull(stored.compressed());
+            assertEquals(text.substring(0, Math.min(text.length(), ChatMessage.PREVIEW_LENGTH)), stored.preview());
+            assertEquals(text.length(), stored.length());
+        }
+    }
+
+    private static String decode(MessageContentCodec.StoredContent stored) {
+        return MessageContentCodec.decode(stored.preview(), stored.content(), stored.compressed());
+    }
+}
@@ -0,0 +1,96 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.pipeline.MessageRejectedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MessageDeduplicatorTest {
+
+    private ChatService chatService;
+    private MessageDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        chatService = mock(ChatService.class);
+        deduplicator = new MessageDeduplicator(chatService, 60_000, 2, 1_000);
+    }
+
+    @Test
+    void retryReturnsOriginalWithoutSecondInsert() {
+        MessageDto saved = message(1L, "c-1");
+        when(chatService.saveMessage("hi", "alice", "c-1")).thenReturn(saved);
+
+        MessageDeduplicator.Result first = deduplicator.send("alice", "c-1", "hi");
+        MessageDeduplicator.Result retry = deduplicator.send("alice", "c-1", "hi");
+
+        assertFalse(first.duplicate());
+        assertTrue(retry.duplicate());
+        assertSame(saved, retry.message());
+        verify(chatService, times(1)).saveMessage("hi", "alice", "c-1");
+    }
+
+    @Test
+    void sameIdFromDifferentUsersIsNotDuplicate() {
+        when(chatService.saveMessage(anyString(), anyString(), eq("c-1"))).thenReturn(message(1L, "c-1"), message(2L, "c-1"));
+
+        assertFalse(deduplicator.send("alice", "c-1", "hi").duplicate());
+        assertFalse(deduplicator.send("bob", "c-1", "hi").duplicate());
+    }
+
+    @Test
+    void failedAttemptCanBeRetried() {
+        when(chatService.saveMessage("hi", "alice", "c-1"))
+                .thenThrow(new MessageRejectedException("rejected"))
+                .thenReturn(message(1L, "c-1"));
+
+        assertThrows(MessageRejectedException.class, () -> deduplicator.send("alice", "c-1", "hi"));
+        assertFalse(deduplicator.send("alice", "c-1", "hi").duplicate());
+    }
+
+    @Test
+    void uniqueConstraintFallsBackToStoredMessage() {
+        MessageDto stored = message(7L, "c-1");
+        when(chatService.saveMessage("hi", "alice", "c-1")).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(chatService.findByClientMessageId("alice", "c-1")).thenReturn(Optional.of(stored));
+
+        MessageDeduplicator.Result result = deduplicator.send("alice", "c-1", "hi");
+
+        assertTrue(result.duplicate());
+        assertSame(stored, result.message());
+    }
+
+    @Test
+    void windowIsBoundedPerUser() {
+        when(chatService.saveMessage(anyString(), eq("alice"), anyString()))
+                .thenAnswer(invocation -> message(1L, invocation.getArgument(2)));
+
+        deduplicator.send("alice", "c-1", "hi");
+        deduplicator.send("alice", "c-2", "hi");
+        deduplicator.send("alice", "c-3", "hi");
+
+        // c-1 вытеснен, повтор снова идет в БД (где его отсечет уникальный индекс)
+        assertFalse(deduplicator.send("alice", "c-1", "hi").duplicate());
+        assertTrue(deduplicator.send("alice", "c-3", "hi").duplicate());
+    }
+
+    @Test
+    void messagesWithoutIdAreNotDeduplicated() {
+        when(chatService.saveMessage("hi", "alice")).thenReturn(message(1L, null), message(2L, null));
+
+        assertFalse(deduplicator.send("alice", null, "hi").duplicate());
+        assertFalse(deduplicator.send("alice", null, "hi").duplicate());
+        verify(chatService, times(2)).saveMessage("hi", "alice");
+    }
+
+    private static MessageDto message(Long id, String clientMessageId) {
+        return new MessageDto(id, "hi", "alice", LocalDateTime.now(), clientMessageId);
+    }
+}
@@ -0,0 +1,59 @@
+package com.test.testtaskwebchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSequenceTest {
+
+    @Test
+    void ordinalsFollowAppendedIds() {
+        MessageSequence sequence = new MessageSequence(8);
+        sequence.reset(3, List.of(10L, 11L, 12L));
+
+        sequence.append(13);
+        sequence.append(15);
+
+        assertEquals(5, sequence.count());
+        assertEquals(1, sequence.ordinalOf(10));
+        assertEquals(4, sequence.ordinalOf(13));
+        // id без сообщения получает номер предыдущего
+        assertEquals(4, sequence.ordinalOf(14));
+        assertEquals(new MessageSequence.Position(15, 5), sequence.position());
+    }
+
+    @Test
+    void outOfOrderAndDuplicateIdsAreCountedOnce() {
+        MessageSequence sequence = new MessageSequence(8);
+        sequence.reset(0, List.of());
+
+        sequence.append(2);
+        sequence.append(1);
+        sequence.append(2);
+        sequence.append(3);
+
+        assertEquals(3, sequence.count());
+        assertEquals(1, sequence.ordinalOf(1));
+        assertEquals(2, sequence.ordinalOf(2));
+    }
+
+    @Test
+    void idsOlderThanWindowAreUnknown() {
+        MessageSequence sequence = new MessageSequence(4);
+        // в БД 100 сообщений, в окно попали последние четыре
+        sequence.reset(100, List.of(96L, 97L, 98L, 99L, 100L));
+
+        assertEquals(-1, sequence.ordinalOf(96));
+        assertEquals(97, sequence.ordinalOf(97));
+
+        sequence.append(101);
+        sequence.append(102);
+
+        assertEquals(102, sequence.count());
+        assertEquals(-1, sequence.ordinalOf(98));
+        assertEquals(102, sequence.ordinalOf(102));
+        assertEquals(101, sequence.ordinalOf(101));
+    }
+}
@@ -0,0 +1,178 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.ReactionSummaryDto;
+import com.test.testtaskwebchat.dto.ReactionUpdateDto;
+import com.test.testtaskwebchat.repository.ChatMessageRepository;
+import com.test.testtaskwebchat.repository.ReactionJdbcRepository;
+import com.test.testtaskwebchat.repository.ReactionJdbcRepository.ReactionRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactionAggregatorTest {
+
+    private static final long MESSAGE_ID = 1L;
+
+    private ReactionJdbcRepository reactionRepository;
+    private SimpMessagingTemplate messagingTemplate;
+    private ReactionAggregator aggregator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        reactionRepository = mock(ReactionJdbcRepository.class);
+        ChatMessageRepository messageRepository = mock(ChatMessageRepository.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        when(messageRepository.findExistingIds(anyCollection()))
+                .thenAnswer(invocation -> new ArrayList<>((Collection<Long>) invocation.getArgument(0)));
+        // в БД уже есть две реакции
+        when(reactionRepository.findByMessageIds(anyCollection())).thenReturn(List.of(
+                new ReactionRow(MESSAGE_ID, "alice", "👍"),
+                new ReactionRow(MESSAGE_ID, "bob", "👍")));
+
+        // планировщик не запускается, рассылка и сброс вызываются тестом
+        aggregator = new ReactionAggregator(reactionRepository, messageRepository, messagingTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 250, 2000, 100);
+    }
+
+    @Test
+    void concurrentTogglesProduceCorrectTotals() throws Exception {
+        int users = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String username = "user-" + i;
+                // четные пользователи ставят и снимают реакцию, нечетные - ставят
+                int toggles = i % 2 == 0 ? 2 : 3;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int t = 0; t < toggles; t++) {
+                        assertTrue(aggregator.toggle(username, MESSAGE_ID, "🔥"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ReactionSummaryDto summary = aggregator.snapshot("user-1", List.of(MESSAGE_ID)).get(0);
+        assertEquals(Map.of("👍", 2L, "🔥", (long) users / 2), summary.getCounts());
+        assertEquals(Set.of("🔥"), summary.getMine());
+
+        aggregator.flush();
+        List<ReactionRow> inserted = captureInserted();
+        assertEquals(users / 2, inserted.size());
+        assertTrue(inserted.stream().allMatch(row -> row.emoji().equals("🔥")
+                && Integer.parseInt(row.username().substring("user-".length())) % 2 == 1));
+    }
+
+    @Test
+    void broadcastSendsAbsoluteCountsOfChangedPairsOnly() {
+        aggregator.toggle("carol", MESSAGE_ID, "👍");
+        aggregator.toggle("carol", MESSAGE_ID, "❤️");
+        aggregator.toggle("alice", MESSAGE_ID, "❤️");
+
+        aggregator.broadcastChanges();
+
+        List<ReactionUpdateDto> updates = captureBroadcast();
+        assertEquals(Set.of(
+                        new ReactionUpdateDto(MESSAGE_ID, "👍", 3),
+                        new ReactionUpdateDto(MESSAGE_ID, "❤️", 2)),
+                new HashSet<>(updates));
+
+        // без новых изменений рассылки нет
+        aggregator.broadcastChanges();
+        verifyNoMoreInteractions(messagingTemplate);
+
+        aggregator.toggle("alice", MESSAGE_ID, "👍");
+        aggregator.broadcastChanges();
+        assertEquals(List.of(new ReactionUpdateDto(MESSAGE_ID, "👍", 2)), captureBroadcast());
+    }
+
+    @Test
+    void flushWritesAddedAndRemovedRows() {
+        aggregator.toggle("carol", MESSAGE_ID, "❤️");
+        aggregator.toggle("bob", MESSAGE_ID, "👍");
+        // повторные переключения схлопываются в последнее состояние
+        aggregator.toggle("dave", MESSAGE_ID, "😂");
+        aggregator.toggle("dave", MESSAGE_ID, "😂");
+        aggregator.toggle("dave", MESSAGE_ID, "😂");
+
+        aggregator.flush();
+
+        assertEquals(Set.of(new ReactionRow(MESSAGE_ID, "carol", "❤️"), new ReactionRow(MESSAGE_ID, "dave", "😂")),
+                new HashSet<>(captureInserted()));
+        assertEquals(List.of(new ReactionRow(MESSAGE_ID, "bob", "👍")), captureDeleted());
+    }
+
+    @Test
+    void togglesDuringFlushAreWrittenByNextFlush() {
+        aggregator.toggle("carol", MESSAGE_ID, "❤️");
+        // пока идет транзакция сброса, carol снимает реакцию, а erin ставит свою
+        doAnswer(invocation -> {
+            aggregator.toggle("carol", MESSAGE_ID, "❤️");
+            aggregator.toggle("erin", MESSAGE_ID, "🔥");
+            return null;
+        }).doNothing().when(reactionRepository).insertAll(anyList());
+
+        aggregator.flush();
+        assertEquals(List.of(new ReactionRow(MESSAGE_ID, "carol", "❤️")), captureInserted());
+
+        clearInvocations(reactionRepository);
+        aggregator.flush();
+        assertEquals(List.of(new ReactionRow(MESSAGE_ID, "erin", "🔥")), captureInserted());
+        assertEquals(List.of(new ReactionRow(MESSAGE_ID, "carol", "❤️")), captureDeleted());
+
+        clearInvocations(reactionRepository);
+        aggregator.flush();
+        verifyNoInteractions(reactionRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReactionRow> captureInserted() {
+        ArgumentCaptor<List<ReactionRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(reactionRepository).insertAll(rows.capture());
+        return rows.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReactionRow> captureDeleted() {
+        ArgumentCaptor<List<ReactionRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(reactionRepository).deleteAll(rows.capture());
+        return rows.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReactionUpdateDto> captureBroadcast() {
+        ArgumentCaptor<Object> updates = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/reactions"), updates.capture());
+        clearInvocations(messagingTemplate);
+        return (List<ReactionUpdateDto>) updates.getValue();
+    }
+}
@@ -0,0 +1,153 @@
+package com.test.testtaskwebchat.service;
+
+import com.test.testtaskwebchat.dto.UnreadDto;
+import com.test.testtaskwebchat.repository.ChatMessageRepository;
+import com.test.testtaskwebchat.repository.ReadMarkJdbcRepository;
+import com.test.testtaskwebchat.repository.ReadMarkJdbcRepository.ReadMarkRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UnreadTrackerTest {
+
+    // окно из 4 последних id, в БД сообщения 1..10
+    private static final int WINDOW = 4;
+
+    private ChatMessageRepository messageRepository;
+    private ReadMarkJdbcRepository readMarkRepository;
+    private UnreadTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(ChatMessageRepository.class);
+        readMarkRepository = mock(ReadMarkJdbcRepository.class);
+        when(messageRepository.findLatestIds(any())).thenReturn(List.of(10L, 9L, 8L, 7L));
+        when(messageRepository.count()).thenReturn(10L);
+        when(readMarkRepository.findMark(anyString())).thenReturn(Optional.empty());
+        when(readMarkRepository.findFurthestMark()).thenReturn(Optional.empty());
+
+        // сброс по расписанию не успеет сработать, тест вызывает flush сам
+        tracker = new UnreadTracker(messageRepository, readMarkRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), WINDOW, 3_600_000);
+        tracker.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        tracker.stop();
+    }
+
+    @Test
+    void newUserStartsAtTheEndOfHistory() {
+        assertEquals(new UnreadDto(10L, 0), tracker.getUnread("newcomer"));
+
+        tracker.messageAdded(11L);
+        tracker.messageAdded(12L);
+        assertEquals(new UnreadDto(10L, 2), tracker.getUnread("newcomer"));
+    }
+
+    @Test
+    void countsUnreadAcrossTheWindowBoundary() {
+        // отметка старше окна: номер хранится вместе с ней, COUNT не нужен
+        when(readMarkRepository.findMark("alice")).thenReturn(Optional.of(new ReadMarkRow(3L, 3L)));
+        assertEquals(new UnreadDto(3L, 7), tracker.getUnread("alice"));
+
+        tracker.messageAdded(11L);
+        tracker.messageAdded(12L);
+        assertEquals(9, tracker.getUnread("alice").getUnread());
+
+        assertEquals(new UnreadDto(9L, 3), tracker.markRead("alice", 9L));
+
+        // окно сдвигается дальше отметки, номер отметки уже известен
+        for (long id = 13; id <= 16; id++) {
+            tracker.messageAdded(id);
+        }
+        assertEquals(new UnreadDto(9L, 7), tracker.getUnread("alice"));
+
+        assertEquals(new UnreadDto(14L, 2), tracker.markRead("alice", 14L));
+        // отметка назад игнорируется, вперед дальше последнего - до последнего
+        assertEquals(new UnreadDto(14L, 2), tracker.markRead("alice", 10L));
+        assertEquals(new UnreadDto(16L, 0), tracker.markRead("alice", 100L));
+
+        verify(messageRepository, never()).countUpTo(anyLong());
+        verify(messageRepository, never()).countBetween(anyLong(), anyLong());
+    }
+
+    @Test
+    void markOlderThanWindowIsCountedFromCurrentMark() {
+        when(readMarkRepository.findMark("alice")).thenReturn(Optional.of(new ReadMarkRow(2L, 2L)));
+        // между 2 и 5 три сообщения, 5 - старше окна
+        when(messageRepository.countBetween(2L, 5L)).thenReturn(3L);
+
+        assertEquals(new UnreadDto(5L, 5), tracker.markRead("alice", 5L));
+        verify(messageRepository, never()).countUpTo(anyLong());
+    }
+
+    @Test
+    void legacyMarkWithoutOrdinalIsCountedOnceAndSaved() {
+        when(readMarkRepository.findMark("alice")).thenReturn(Optional.of(new ReadMarkRow(3L, null)));
+        when(messageRepository.countUpTo(3L)).thenReturn(3L);
+
+        assertEquals(new UnreadDto(3L, 7), tracker.getUnread("alice"));
+        assertEquals(new UnreadDto(3L, 7), tracker.getUnread("alice"));
+        verify(messageRepository).countUpTo(3L);
+
+        tracker.flush();
+        verify(readMarkRepository).upsertAll(Map.of("alice", new ReadMarkRow(3L, 3L)));
+    }
+
+    @Test
+    void totalCountStartsFromFurthestSavedMark() throws InterruptedException {
+        tracker.stop();
+        when(readMarkRepository.findFurthestMark()).thenReturn(Optional.of(new ReadMarkRow(8L, 8L)));
+        when(messageRepository.countBetween(8L, 10L)).thenReturn(2L);
+        clearInvocations(messageRepository);
+
+        tracker = new UnreadTracker(messageRepository, readMarkRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), WINDOW, 3_600_000);
+        tracker.start();
+
+        assertEquals(new UnreadDto(10L, 0), tracker.getUnread("newcomer"));
+        tracker.messageAdded(11L);
+        assertEquals(new UnreadDto(10L, 1), tracker.getUnread("newcomer"));
+        verify(messageRepository, never()).count();
+    }
+
+    @Test
+    void flushWritesLatestMarksAndKeepsMarksMadeDuringFlush() {
+        when(readMarkRepository.findMark("bob")).thenReturn(Optional.of(new ReadMarkRow(8L, 8L)));
+        tracker.getUnread("alice");
+        tracker.getUnread("bob");
+        tracker.messageAdded(11L);
+        tracker.messageAdded(12L);
+
+        tracker.markRead("alice", 11L);
+        tracker.markRead("alice", 12L);
+        tracker.markRead("bob", 9L);
+        // пока идет транзакция сброса, bob читает дальше
+        doAnswer(invocation -> {
+            tracker.markRead("bob", 11L);
+            return null;
+        }).doNothing().when(readMarkRepository).upsertAll(anyMap());
+
+        tracker.flush();
+        verify(readMarkRepository).upsertAll(Map.of("alice", new ReadMarkRow(12L, 12L), "bob", new ReadMarkRow(9L, 9L)));
+
+        tracker.flush();
+        verify(readMarkRepository).upsertAll(Map.of("bob", new ReadMarkRow(11L, 11L)));
+
+        clearInvocations(readMarkRepository);
+        tracker.flush();
+        verify(readMarkRepository, never()).upsertAll(anyMap());
+    }
+}
@@ -0,0 +1,164 @@
+package com.test.testtaskwebchat.sse;
+
+import com.test.testtaskwebchat.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение стоимости пассивного зрителя по SSE и полноценной STOMP-сессии.
+ * Клиенты работают в той же JVM, поэтому цифры включают клиентскую сторону обоих транспортов.
+ * Запуск: ./gradlew capacityTest
+ */
+@Tag("capacity")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:sse-capacity;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+)
+class SseCapacityTest {
+
+    private static final int CONNECTIONS = 200;
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SseBroadcaster sseBroadcaster;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void compareSseViewerWithStompSession() throws Exception {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(2);
+        HttpClient sseClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+
+        List<InputStream> sseStreams = new ArrayList<>();
+        List<StompSession> stompSessions = new ArrayList<>();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter());
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+        try {
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            long baseline = usedHeap();
+
+            for (int i = 0; i < CONNECTIONS; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl() + "/sse/chat"))
+                        .header("Accept", "text/event-stream")
+                        .build();
+                HttpResponse<InputStream> response = sseClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                assertEquals(200, response.statusCode());
+                sseStreams.add(response.body());
+            }
+
+            long afterSse = usedHeap();
+            int threadsAfterSse = ManagementFactory.getThreadMXBean().getThreadCount();
+            assertEquals(CONNECTIONS, sseBroadcaster.getViewerCount());
+
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.add("Cookie", "JSESSIONID=" + login("capacity", "capacity-pass"));
+            for (int i = 0; i < CONNECTIONS; i++) {
+                StompSession session = stompClient
+                        .connectAsync("ws://localhost:" + port + "/ws/websocket", headers, new StompSessionHandlerAdapter() {})
+                        .get(10, TimeUnit.SECONDS);
+                session.subscribe("/topic/messages", new StompSessionHandlerAdapter() {});
+                stompSessions.add(session);
+            }
+
+            long afterStomp = usedHeap();
+
+            long ssePerViewer = (afterSse - baseline) / CONNECTIONS;
+            long stompPerSession = (afterStomp - afterSse) / CONNECTIONS;
+            System.out.printf("SSE:   %d bytes/viewer, +%d threads for %d viewers%n",
+                    ssePerViewer, threadsAfterSse - threadsBefore, CONNECTIONS);
+            System.out.printf("STOMP: %d bytes/session%n", stompPerSession);
+
+            // async servlet: открытые SSE-соединения не держат потоки
+            assertTrue(threadsAfterSse - threadsBefore < 32,
+                    "SSE-зрители заняли потоки: " + (threadsAfterSse - threadsBefore));
+        } finally {
+            stompSessions.forEach(StompSession::disconnect);
+            for (InputStream stream : sseStreams) {
+                stream.close();
+            }
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private String login(String username, String password) throws Exception {
+        if (userService.findByUsername(username).isEmpty()) {
+            userService.registerNewUser(username, password);
+        }
+
+        CookieManager cookies = new CookieManager();
+        HttpClient client = HttpClient.newBuilder().cookieHandler(cookies).build();
+
+        String loginPage = client.send(HttpRequest.newBuilder(URI.create(baseUrl() + "/login")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher csrf = CSRF.matcher(loginPage);
+        assertTrue(csrf.find(), "CSRF-токен не найден на странице логина");
+
+        String form = "username=" + encode(username) + "&password=" + encode(password) + "&_csrf=" + encode(csrf.group(1));
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl() + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        return cookies.getCookieStore().getCookies().stream()
+                .filter(cookie -> "JSESSIONID".equals(cookie.getName()))
+                .map(HttpCookie::getValue)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Нет JSESSIONID после логина"));
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,122 @@
+package com.test.testtaskwebchat.sse;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Зритель, который открыл SSE-поток и перестал читать, не задерживает рассылку остальным
+ * и отключается по переполнению своей очереди.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:sse-slow-viewer;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "chat.sse.max-queued=32"
+        }
+)
+class SseSlowViewerTest {
+
+    private static final int MESSAGES = 400;
+    // крупные события, чтобы быстро заполнить сокетные буферы зависшего клиента
+    private static final String CONTENT = "x".repeat(64 * 1024);
+    private static final long MARKER_ID = 1_000_000_000L;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SseBroadcaster sseBroadcaster;
+
+    @Test
+    void stalledViewerDoesNotDelayOthers() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        int viewersBefore = sseBroadcaster.getViewerCount();
+
+        try (Socket stalled = new Socket()) {
+            // маленький приемный буфер и ни одного read
+            stalled.setReceiveBufferSize(4096);
+            stalled.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = stalled.getOutputStream();
+            out.write(("GET /sse/chat HTTP/1.1\r\nHost: localhost:" + port + "\r\nAccept: text/event-stream\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            HttpResponse<InputStream> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sse/chat"))
+                            .header("Accept", "text/event-stream")
+                            .build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, response.statusCode());
+
+            CountDownLatch markerSeen = new CountDownLatch(1);
+            Thread reader = new Thread(() -> readUntilMarker(response.body(), markerSeen), "sse-healthy-viewer");
+            reader.setDaemon(true);
+            reader.start();
+
+            awaitTrue(() -> sseBroadcaster.getViewerCount() == viewersBefore + 2, 10_000, "зрители не подключились");
+
+            // темп, с которым читающий зритель справляется, а зависший - нет
+            for (int i = 1; i <= MESSAGES; i++) {
+                sseBroadcaster.publishMessage(message(MARKER_ID - MESSAGES + i - 1));
+                Thread.sleep(2);
+            }
+            sseBroadcaster.publishMessage(message(MARKER_ID));
+
+            assertTrue(markerSeen.await(20, TimeUnit.SECONDS),
+                    "читающий зритель не получил последнее событие, пока другой не читает");
+            awaitTrue(() -> sseBroadcaster.getViewerCount() == viewersBefore + 1, 10_000,
+                    "зависший зритель не отключен по переполнению очереди");
+
+            response.body().close();
+        }
+    }
+
+    private static MessageDto message(long id) {
+        return new MessageDto(id, CONTENT, "slow-viewer-test", LocalDateTime.now());
+    }
+
+    private static void readUntilMarker(InputStream body, CountDownLatch markerSeen) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.equals("id:" + MARKER_ID)) {
+                    markerSeen.countDown();
+                    return;
+                }
+            }
+        } catch (Exception ignored) {
+            // поток закрыт тестом
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long timeoutMs, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.test.testtaskwebchat.startup;
+
+import com.test.testtaskwebchat.TestTaskWebchatApplication;
+import com.test.testtaskwebchat.dto.MessageDto;
+import com.test.testtaskwebchat.service.ChatService;
+import com.test.testtaskwebchat.service.UserService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Профиль fast-start не проверяет схему при старте (ddl-auto: none) и пропускает Liquibase
+ * при неизменном changelog. Первый запуск мигрирует пустую БД и с включенной validate
+ * сверяет сущности со схемой, второй стартует как в проде - без Liquibase и без проверки.
+ */
+class FastStartProfileTest {
+
+    private static final List<String> FAST_START = List.of(
+            "--spring.profiles.active=fast-start",
+            "--spring.datasource.url=jdbc:h2:mem:fast-start;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+            "--server.port=0");
+
+    @Test
+    void entitiesMatchMigratedSchemaAndRestartSkipsLiquibase() {
+        String longText = "длинное сообщение ".repeat(100);
+        Long messageId;
+
+        List<String> validating = new ArrayList<>(FAST_START);
+        validating.add("--spring.jpa.hibernate.ddl-auto=validate");
+        validating.add("--spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=true");
+        try (ConfigurableApplicationContext first = start(validating)) {
+            assertTrue(first.getBean(SpringLiquibase.class).isShouldRun(), "пустая БД должна мигрироваться");
+
+            first.getBean(UserService.class).registerNewUser("fast-start", "fast-start-pass");
+            messageId = first.getBean(ChatService.class).saveMessage(longText, "fast-start").getId();
+        }
+
+        try (ConfigurableApplicationContext second = start(FAST_START)) {
+            assertFalse(second.getBean(SpringLiquibase.class).isShouldRun(), "changelog не менялся");
+
+            ChatService chatService = second.getBean(ChatService.class);
+            MessageDto stored = chatService.getLastMessages().stream()
+                    .filter(message -> message.getId().equals(messageId))
+                    .findFirst()
+                    .orElseThrow();
+            assertTrue(stored.isTruncated());
+            assertEquals(longText, chatService.getFullContent(messageId).orElseThrow());
+        }
+    }
+
+    private static ConfigurableApplicationContext start(List<String> args) {
+        return new SpringApplicationBuilder(TestTaskWebchatApplication.class).run(args.toArray(String[]::new));
+    }
+}
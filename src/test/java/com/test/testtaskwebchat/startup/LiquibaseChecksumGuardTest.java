@@ -0,0 +1,56 @@
+package com.test.testtaskwebchat.startup;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiquibaseChecksumGuardTest {
+
+    private static final String CHANGELOG = "classpath:db/changelog/db.changelog-master.yaml";
+
+    private final DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:checksum-guard;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+
+    @Test
+    void skipsLiquibaseWhenChangelogIsUnchanged() throws Exception {
+        SpringLiquibase first = initialize(new LiquibaseChecksumGuard(true), liquibase(null));
+        assertTrue(first.isShouldRun(), "первый прогон должен выполнить миграции");
+
+        SpringLiquibase second = initialize(new LiquibaseChecksumGuard(true), liquibase(null));
+        assertFalse(second.isShouldRun());
+
+        // другой фильтр контекстов - другой набор changeSet, прогон нужен
+        SpringLiquibase otherContexts = initialize(new LiquibaseChecksumGuard(true), liquibase("test"));
+        assertTrue(otherContexts.isShouldRun());
+    }
+
+    @Test
+    void disabledGuardLeavesLiquibaseAlone() throws Exception {
+        SpringLiquibase liquibase = liquibase(null);
+        liquibase.setShouldRun(true);
+
+        assertTrue(initialize(new LiquibaseChecksumGuard(false), liquibase).isShouldRun());
+    }
+
+    private SpringLiquibase liquibase(String contexts) {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(CHANGELOG);
+        liquibase.setContexts(contexts);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        return liquibase;
+    }
+
+    // тот же порядок, что у контейнера: before-init, afterPropertiesSet, after-init
+    private static SpringLiquibase initialize(LiquibaseChecksumGuard guard, SpringLiquibase liquibase) throws Exception {
+        guard.postProcessBeforeInitialization(liquibase, "liquibase");
+        liquibase.afterPropertiesSet();
+        guard.postProcessAfterInitialization(liquibase, "liquibase");
+        return liquibase;
+    }
+}
@@ -0,0 +1,166 @@
+package com.test.testtaskwebchat.startup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Холодный старт отдельного процесса: время от запуска JVM до readiness UP и до первого
+ * события SSE-потока (список пользователей и история), то есть до первого обслуженного ответа.
+ * Все запуски идут против одной файловой БД, как при выкатке новой версии на существующую схему.
+ * Запуск: ./gradlew startupBenchmark [-Pruns=5]
+ */
+public final class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    record Mode(String name, List<String> jvmArgs, List<String> appArgs) {
+    }
+
+    record Sample(Duration ready, Duration firstEvent) {
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Использование: StartupBenchmark <каталог jar> <jar> <java> [число запусков]");
+            System.exit(2);
+        }
+        Path workDir = Path.of(args[0]);
+        String jar = args[1];
+        String java = args[2];
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Path dataDir = Files.createTempDirectory("startup-benchmark");
+        String database = "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("webchat") + ";MODE=PostgreSQL";
+        List<String> fastStart = List.of("--spring.profiles.active=fast-start");
+        List<Mode> modes = List.of(
+                new Mode("plain", List.of(), List.of()),
+                new Mode("fast-start", List.of(), fastStart),
+                new Mode("aot+cds+fast-start", List.of("-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true"), fastStart));
+
+        // первый запуск создает схему и запоминает checksum changelog, в замеры не входит
+        launch(java, workDir, jar, database, modes.get(1), dataDir);
+
+        List<List<Sample>> results = new ArrayList<>();
+        for (Mode mode : modes) {
+            List<Sample> samples = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                samples.add(launch(java, workDir, jar, database, mode, dataDir));
+            }
+            results.add(samples);
+        }
+        print(System.out, modes, results);
+        System.out.println("Логи запусков: " + dataDir);
+    }
+
+    private static Sample launch(String java, Path workDir, String jar, String database, Mode mode, Path dataDir)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(mode.jvmArgs());
+        command.add("-jar");
+        command.add(jar);
+        command.add("--server.port=" + port);
+        command.add(database);
+        command.addAll(mode.appArgs());
+
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(dataDir.resolve(mode.name() + ".log").toFile())
+                .start();
+        long start = System.nanoTime();
+        try {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+            awaitReady(client, port, process, start);
+            Duration ready = since(start);
+            awaitFirstEvent(client, port);
+            return new Sample(ready, since(start));
+        } finally {
+            // SIGTERM: штатное завершение освобождает файл БД для следующего запуска
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static void awaitReady(HttpClient client, int port, Process process, long start)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness")).build();
+        while (since(start).compareTo(START_TIMEOUT) < 0) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Приложение завершилось с кодом " + process.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // порт еще не открыт или соединение сброшено при старте
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Приложение не стало готовым за " + START_TIMEOUT);
+    }
+
+    private static void awaitFirstEvent(HttpClient client, int port) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sse/chat"))
+                .header("Accept", "text/event-stream")
+                .build();
+        try (InputStream body = client.send(request, HttpResponse.BodyHandlers.ofInputStream()).body();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("SSE-поток закрылся без событий");
+    }
+
+    private static void print(PrintStream out, List<Mode> modes, List<List<Sample>> results) {
+        out.printf("%-22s %12s %12s %14s %14s%n", "mode", "ready p50", "ready min", "first p50", "first min");
+        for (int i = 0; i < modes.size(); i++) {
+            List<Duration> ready = results.get(i).stream().map(Sample::ready).sorted().toList();
+            List<Duration> first = results.get(i).stream().map(Sample::firstEvent).sorted().toList();
+            out.printf("%-22s %12s %12s %14s %14s%n", modes.get(i).name(),
+                    millis(ready.get(ready.size() / 2)), millis(ready.get(0)),
+                    millis(first.get(first.size() / 2)), millis(first.get(0)));
+        }
+        out.println("Время в мс от запуска процесса.");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Duration since(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    private static String millis(Duration duration) {
+        return Long.toString(duration.toMillis());
+    }
+}
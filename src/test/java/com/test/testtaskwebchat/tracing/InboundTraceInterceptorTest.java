@@ -0,0 +1,42 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboundTraceInterceptorTest {
+
+    private final InboundTraceInterceptor interceptor = new InboundTraceInterceptor();
+
+    @Test
+    void startsEventOnlyForChatSend() {
+        try (Recording recording = new Recording()) {
+            recording.enable(InboundEvent.NAME).withoutThreshold();
+            recording.start();
+
+            Message<?> traced = interceptor.preSend(send("/app/chat.send"), null);
+            assertInstanceOf(InboundEvent.class, traced.getHeaders().get(MessageTracing.INBOUND_EVENT_HEADER));
+
+            // остальные направления проходят тем же экземпляром, без события
+            for (String destination : List.of("/app/chat.typing", "/app/chat.react", "/app/chat.read")) {
+                Message<byte[]> message = send(destination);
+                assertSame(message, interceptor.preSend(message, null), destination);
+            }
+        }
+    }
+
+    private static Message<byte[]> send(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        return MessageBuilder.createMessage("{}".getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,48 @@
+package com.test.testtaskwebchat.tracing;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundTraceInterceptorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordsEverySubscriberOfSampledMessagesOnly() throws Exception {
+        OutboundTraceInterceptor interceptor = new OutboundTraceInterceptor(5);
+        Path file = tempDir.resolve("outbound.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OutboundEvent.NAME).withoutThreshold();
+            recording.start();
+
+            for (long messageId = 1; messageId <= 10; messageId++) {
+                for (int subscriber = 0; subscriber < 3; subscriber++) {
+                    Message<String> message = MessageBuilder.withPayload("{}")
+                            .setHeader(MessageTracing.MESSAGE_ID_HEADER, messageId)
+                            .build();
+                    interceptor.beforeHandle(message, null, null);
+                    interceptor.afterMessageHandled(message, null, null, null);
+                }
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<Long> recorded = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(OutboundEvent.NAME))
+                .map(event -> event.getLong("messageId"))
+                .toList();
+        assertEquals(List.of(5L, 5L, 5L, 10L, 10L, 10L), recorded.stream().sorted().toList());
+    }
+}
@@ -0,0 +1,132 @@
+package com.test.testtaskwebchat.tracing;
+
+import com.test.testtaskwebchat.dto.MessageDto;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reportsStagesAndSlowestMessageFirst() throws Exception {
+        Path file = tempDir.resolve("trace.jfr");
+        try (Recording recording = new Recording()) {
+            TraceAnalyzer.STAGES.forEach(stage -> recording.enable(stage).withoutThreshold());
+            // прогрев вне записи, чтобы загрузка классов не исказила первую трассу
+            trace(message(100L), 0, 1);
+            recording.start();
+
+            trace(message(1L), 0, 2);
+            trace(message(2L), 50, 2);
+            // без записи подписчикам трасса неполная и в выбросы не попадает
+            SaveEvent orphan = new SaveEvent();
+            orphan.begin();
+            orphan.end();
+            orphan.commitFor(message(3L), false);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        TraceAnalyzer.Report report = TraceAnalyzer.analyze(file);
+
+        TraceAnalyzer.StageStats save = report.stages().get(TraceAnalyzer.STAGES.indexOf(SaveEvent.NAME));
+        TraceAnalyzer.StageStats outbound = report.stages().get(TraceAnalyzer.STAGES.indexOf(OutboundEvent.NAME));
+        assertEquals(3, save.count());
+        assertEquals(4, outbound.count());
+
+        assertEquals(2, report.slowest().size());
+        TraceAnalyzer.MessageTrace slowest = report.slowest().get(0);
+        assertEquals(2L, slowest.messageId());
+        assertEquals(2, slowest.deliveries());
+        assertEquals(SaveEvent.NAME, slowest.dominantStage());
+        assertTrue(slowest.stage(SaveEvent.NAME).toMillis() >= 50);
+        assertEquals(2, report.endToEnd().count());
+    }
+
+    @Test
+    void nestedSerializationIsNotCountedTwice() throws Exception {
+        Path file = tempDir.resolve("nested.jfr");
+        MessageDto message = message(7L);
+        try (Recording recording = new Recording()) {
+            TraceAnalyzer.STAGES.forEach(stage -> recording.enable(stage).withoutThreshold());
+            nestedTrace(message(100L), 0);
+            recording.start();
+
+            nestedTrace(message, 50);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        TraceAnalyzer.MessageTrace trace = TraceAnalyzer.analyze(file).slowest().get(0);
+        assertEquals(SerializeEvent.NAME, trace.dominantStage());
+        assertTrue(trace.stage(SerializeEvent.NAME).toMillis() >= 50);
+        assertTrue(trace.stage(BroadcastEvent.NAME).toMillis() < 50,
+                "время сериализации учтено и в рассылке: " + trace.stage(BroadcastEvent.NAME));
+        // этапы не покрывают больше сквозного времени
+        long covered = TraceAnalyzer.STAGES.stream().mapToLong(stage -> trace.stage(stage).toNanos()).sum();
+        assertTrue(covered <= trace.endToEnd().toNanos());
+    }
+
+    private static void nestedTrace(MessageDto message, long serializeMillis) throws InterruptedException {
+        InboundEvent inbound = new InboundEvent();
+        inbound.begin();
+        inbound.end();
+        inbound.commitFor(message);
+
+        // сериализация выполняется внутри convertAndSend, то есть внутри рассылки
+        BroadcastEvent broadcast = new BroadcastEvent();
+        broadcast.begin();
+        SerializeEvent serialize = new SerializeEvent();
+        serialize.begin();
+        Thread.sleep(serializeMillis);
+        serialize.end();
+        serialize.commitFor(message);
+        broadcast.end();
+        broadcast.commitFor(message);
+
+        OutboundEvent outbound = new OutboundEvent();
+        outbound.messageId = message.getId();
+        outbound.begin();
+        outbound.commit();
+    }
+
+    private static void trace(MessageDto message, long saveMillis, int subscribers) throws InterruptedException {
+        InboundEvent inbound = new InboundEvent();
+        inbound.begin();
+        inbound.end();
+
+        SaveEvent save = new SaveEvent();
+        save.begin();
+        Thread.sleep(saveMillis);
+        save.end();
+        save.commitFor(message, false);
+        inbound.commitFor(message);
+
+        BroadcastEvent broadcast = new BroadcastEvent();
+        broadcast.begin();
+        broadcast.end();
+        broadcast.commitFor(message);
+
+        for (int i = 0; i < subscribers; i++) {
+            OutboundEvent outbound = new OutboundEvent();
+            outbound.messageId = message.getId();
+            outbound.sessionId = "s" + i;
+            outbound.begin();
+            outbound.commit();
+        }
+    }
+
+    private static MessageDto message(long id) {
+        return new MessageDto(id, "text", "alice", LocalDateTime.now(), "c-" + id);
+    }
+}
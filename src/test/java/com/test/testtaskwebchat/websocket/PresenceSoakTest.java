@@ -0,0 +1,345 @@
+package com.test.testtaskwebchat.websocket;
+
+import com.test.testtaskwebchat.FormLogin;
+import com.test.testtaskwebchat.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Длительная проверка, что состояние сессий и присутствия не копится в heap.
+ * Каждый цикл открывает пачку STOMP-сессий и закрывает их тремя способами: штатно,
+ * обрывом TCP (RST) и "зависанием" без единого фрейма до таймаута реестра.
+ * После цикла снимается гистограмма heap (с полной сборкой), число живых экземпляров
+ * классов приложения, Spring WebSocket/messaging и Tomcat WebSocket сравнивается с базой.
+ * Запуск: ./gradlew soakTest [-PsoakCycles=N -PsoakSessions=N], гистограммы - в build/soak.
+ */
+@Tag("soak")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:presence-soak;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "chat.presence.session-timeout-ms=" + PresenceSoakTest.SESSION_TIMEOUT_MS,
+                "chat.presence.reaper-tick-ms=100"
+        }
+)
+class PresenceSoakTest {
+
+    static final long SESSION_TIMEOUT_MS = 2_000;
+
+    private static final int CYCLES = Integer.getInteger("soak.cycles", 20);
+    private static final int SESSIONS = Integer.getInteger("soak.sessions", 300);
+    private static final int USERS = 20;
+    // утечка хотя бы одного объекта на сессию дает рост в SESSIONS за цикл
+    private static final long ALLOWED_GROWTH = Math.max(16, SESSIONS / 10);
+    private static final List<String> TRACKED_PACKAGES = List.of(
+            "com.test.testtaskwebchat.",
+            "org.springframework.web.socket.",
+            "org.springframework.messaging.",
+            "org.apache.tomcat.websocket.");
+
+    private static final Pattern HISTOGRAM_LINE = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+\\d+\\s+(\\S+)");
+    private static final Pattern CURRENT_SESSIONS = Pattern.compile("^(\\d+) current");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Autowired
+    private TypingTracker typingTracker;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WebSocketMessageBrokerStats brokerStats;
+
+    @Test
+    void retainedSessionStateReturnsToBaseline() throws Exception {
+        Path dir = Path.of(System.getProperty("soak.dir", "build/soak"));
+        Files.createDirectories(dir);
+
+        List<String> cookies = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            cookies.add(FormLogin.login(userService, port, "soak-" + i, "soak-pass"));
+        }
+
+        // прогрев: пулы Tomcat, ленивые бины и кеши заполняются в первом цикле
+        runCycle(cookies);
+        Map<String, Long> baseline = histogram(dir.resolve("histogram-baseline.txt"));
+        long baselineHeap = usedHeap();
+        System.out.printf("База: heap %d KB, отслеживаемых экземпляров %d%n", baselineHeap / 1024, total(baseline));
+
+        Map<String, List<Long>> growth = new TreeMap<>();
+        for (int cycle = 1; cycle <= CYCLES; cycle++) {
+            runCycle(cookies);
+            Map<String, Long> current = histogram(dir.resolve("histogram-" + cycle + ".txt"));
+            for (String className : union(baseline, current)) {
+                long delta = current.getOrDefault(className, 0L) - baseline.getOrDefault(className, 0L);
+                growth.computeIfAbsent(className, k -> new ArrayList<>()).add(delta);
+            }
+            System.out.printf("Цикл %d/%d: heap %+d KB, отслеживаемых экземпляров %+d%n",
+                    cycle, CYCLES, (usedHeap() - baselineHeap) / 1024, total(current) - total(baseline));
+        }
+
+        // по последней гистограмме: временные всплески между циклами утечкой не считаются
+        List<String> leaks = new ArrayList<>();
+        growth.forEach((className, deltas) -> {
+            long last = deltas.get(deltas.size() - 1);
+            if (last > ALLOWED_GROWTH) {
+                leaks.add(className + " +" + last + " по циклам " + deltas);
+            }
+        });
+        assertTrue(leaks.isEmpty(), "Состояние сессий не вернулось к базе после "
+                + CYCLES + " циклов по " + SESSIONS + " сессий:\n" + String.join("\n", leaks));
+    }
+
+    private void runCycle(List<String> cookies) throws Exception {
+        List<RawStompClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < SESSIONS; i++) {
+                clients.add(RawStompClient.open(port, cookies.get(i % USERS), "soak-" + (i % USERS)));
+            }
+            await(() -> sessionRegistry.getSessionCount() == SESSIONS, 10_000, "не все сессии зарегистрированы");
+            assertEquals(USERS, sessionRegistry.getOnlineUsernames().size());
+
+            for (int i = 0; i < clients.size(); i++) {
+                switch (i % 3) {
+                    case 0 -> clients.get(i).closeCleanly();
+                    case 1 -> clients.get(i).abort();
+                    default -> {
+                        // молчащий клиент: соединение открыто, вычистить его должен реестр по таймауту
+                    }
+                }
+            }
+            await(() -> sessionRegistry.getSessionCount() == 0, SESSION_TIMEOUT_MS * 5,
+                    "реестр не освободил сессии: " + sessionRegistry.getSessionCount());
+        } finally {
+            clients.forEach(RawStompClient::abort);
+        }
+
+        await(() -> currentWebSocketSessions() == 0, 10_000,
+                "открыты WebSocket-сессии: " + brokerStats.getWebSocketSessionStatsInfo());
+        assertTrue(sessionRegistry.getOnlineUsernames().isEmpty());
+        assertTrue(typingTracker.getTyping().isEmpty());
+        assertEquals(0, meterRegistry.get("chat.ratelimit.buckets").tag("scope", "session").gauge().value());
+        assertEquals(0, meterRegistry.get("chat.ratelimit.buckets").tag("scope", "typing").gauge().value());
+    }
+
+    private int currentWebSocketSessions() {
+        Matcher matcher = CURRENT_SESSIONS.matcher(brokerStats.getWebSocketSessionStatsInfo());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    // GC.class_histogram делает полную сборку, поэтому в гистограмме только живые объекты
+    private static Map<String, Long> histogram(Path file) throws Exception {
+        String text = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "gcClassHistogram",
+                new Object[]{null},
+                new String[]{String[].class.getName()});
+        Files.writeString(file, text);
+
+        Map<String, Long> instances = new HashMap<>();
+        for (String line : text.split("\n")) {
+            Matcher matcher = HISTOGRAM_LINE.matcher(line);
+            if (matcher.find() && tracked(matcher.group(2))) {
+                instances.merge(matcher.group(2), Long.parseLong(matcher.group(1)), Long::sum);
+            }
+        }
+        return instances;
+    }
+
+    private static boolean tracked(String className) {
+        return TRACKED_PACKAGES.stream().anyMatch(className::startsWith);
+    }
+
+    private static List<String> union(Map<String, Long> a, Map<String, Long> b) {
+        List<String> names = new ArrayList<>(a.keySet());
+        b.keySet().stream().filter(name -> !a.containsKey(name)).forEach(names::add);
+        return names;
+    }
+
+    private static long total(Map<String, Long> histogram) {
+        return histogram.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMs, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Минимальный STOMP-клиент поверх голого сокета: в отличие от WebSocketStompClient
+     * позволяет оборвать соединение без close-фрейма и без DISCONNECT.
+     * Читает только ответ на CONNECT, подписка - на редкое направление, чтобы не переполнять буферы.
+     */
+    private static final class RawStompClient {
+
+        private static final Random RANDOM = new Random();
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final OutputStream out;
+
+        private RawStompClient(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        static RawStompClient open(int port, String jsessionId, String username) throws IOException {
+            Socket socket = new Socket("localhost", port);
+            socket.setSoTimeout(10_000);
+            RawStompClient client = new RawStompClient(socket);
+            try {
+                client.handshake(port, jsessionId);
+                // клиент обещает heartbeat, но не шлет их: молчащие сессии реестр снимает по таймауту
+                client.send("CONNECT\naccept-version:1.2\nhost:localhost\nheart-beat:10000,0\n\n");
+                String connected = client.readFrame();
+                if (!connected.startsWith("CONNECTED")) {
+                    throw new IOException("Ожидался CONNECTED: " + connected);
+                }
+                client.send("SUBSCRIBE\nid:sub-0\ndestination:/topic/typing\n\n");
+                client.send("SEND\ndestination:/app/chat.addUser\ncontent-type:text/plain\n\n" + username);
+                client.send("SEND\ndestination:/app/chat.typing\ncontent-type:application/json\n\n{\"typing\":true}");
+                return client;
+            } catch (IOException e) {
+                client.abort();
+                throw e;
+            }
+        }
+
+        void closeCleanly() {
+            try {
+                send("DISCONNECT\n\n");
+                // close-фрейм с кодом 1000
+                writeFrame(0x88, new byte[]{0x03, (byte) 0xE8});
+                socket.close();
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        // RST вместо FIN: сервер узнает о разрыве только по ошибке чтения
+        void abort() {
+            try {
+                if (!socket.isClosed()) {
+                    socket.setSoLinger(true, 0);
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+                // сокет уже закрыт
+            }
+        }
+
+        private void handshake(int port, String jsessionId) throws IOException {
+            byte[] key = new byte[16];
+            RANDOM.nextBytes(key);
+            String request = "GET /ws/websocket HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: " + Base64.getEncoder().encodeToString(key) + "\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n"
+                    + "Cookie: JSESSIONID=" + jsessionId + "\r\n"
+                    + "\r\n";
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            int matched = 0;
+            while (matched < 4) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Соединение закрыто во время handshake");
+                }
+                head.write(b);
+                matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+            }
+            String status = head.toString(StandardCharsets.ISO_8859_1);
+            if (!status.startsWith("HTTP/1.1 101")) {
+                throw new IOException("Handshake отклонен: " + status.lines().findFirst().orElse(""));
+            }
+        }
+
+        private void send(String frame) throws IOException {
+            writeFrame(0x81, (frame + "\0").getBytes(StandardCharsets.UTF_8));
+        }
+
+        // кадры клиента по RFC 6455 обязательно маскируются
+        private void writeFrame(int opcode, byte[] payload) throws IOException {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 8);
+            frame.write(opcode);
+            if (payload.length < 126) {
+                frame.write(0x80 | payload.length);
+            } else {
+                frame.write(0x80 | 126);
+                frame.write(payload.length >>> 8);
+                frame.write(payload.length & 0xFF);
+            }
+            byte[] mask = new byte[4];
+            RANDOM.nextBytes(mask);
+            frame.write(mask);
+            for (int i = 0; i < payload.length; i++) {
+                frame.write(payload[i] ^ mask[i % 4]);
+            }
+            out.write(frame.toByteArray());
+            out.flush();
+        }
+
+        private String readFrame() throws IOException {
+            in.readUnsignedByte();
+            int length = in.readUnsignedByte() & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = (int) in.readLong();
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.test.testtaskwebchat.websocket;
+
+import com.test.testtaskwebchat.dto.SendErrorDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateLimitInterceptorTest {
+
+    private SimpMessageSendingOperations messagingTemplate;
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessageSendingOperations.class);
+        // сессия: 2 сообщения подряд, набор: 3 кадра подряд
+        interceptor = new RateLimitInterceptor(new SimpleMeterRegistry(), messagingTemplate, true,
+                0.1, 2, 100, 100, 0.1, 3);
+    }
+
+    @Test
+    void nonSendDestinationsPassThroughWhenMessageLimitIsExhausted() {
+        assertNotNull(interceptor.preSend(send("/app/chat.send", "{}"), null));
+        assertNotNull(interceptor.preSend(send("/app/chat.send", "{}"), null));
+        assertNull(interceptor.preSend(send("/app/chat.send", "{}"), null));
+
+        for (String destination : List.of("/app/chat.addUser", "/app/chat.react", "/app/chat.read",
+                "/app/reactions", "/app/unread")) {
+            for (int i = 0; i < 10; i++) {
+                Message<byte[]> message = send(destination, "{}");
+                assertSame(message, interceptor.preSend(message, null), destination);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectedSendIsAnsweredInSenderSessionWithoutClosingIt() {
+        interceptor.preSend(send("/app/chat.send", "{\"clientMessageId\":\"c-1\"}"), null);
+        interceptor.preSend(send("/app/chat.send", "{\"clientMessageId\":\"c-2\"}"), null);
+
+        assertNull(interceptor.preSend(send("/app/chat.send", "{\"clientMessageId\":\"c-3\"}"), null));
+
+        ArgumentCaptor<Object> error = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("alice"), eq("/queue/errors"), error.capture(), headers.capture());
+        SendErrorDto sendError = (SendErrorDto) error.getValue();
+        assertEquals("c-3", sendError.getClientMessageId());
+        assertTrue(sendError.getRetryAfterMs() > 0);
+        assertEquals("s1", SimpMessageHeaderAccessor.getSessionId(headers.getValue()));
+    }
+
+    @Test
+    void typingHasItsOwnBucket() {
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(interceptor.preSend(send("/app/chat.typing", "{\"typing\":true}"), null));
+        }
+        // лишний кадр набора отбрасывается молча
+        assertNull(interceptor.preSend(send("/app/chat.typing", "{\"typing\":true}"), null));
+        verifyNoInteractions(messagingTemplate);
+
+        assertNotNull(interceptor.preSend(send("/app/chat.send", "{}"), null));
+        assertNotNull(interceptor.preSend(send("/app/chat.send", "{}"), null));
+    }
+
+    @Test
+    void sendRejectedByUserLimitDoesNotChargeSession() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // пользователь: 1 сообщение и 20 в секунду, сессия: 2 сообщения без пополнения
+        RateLimitInterceptor limiter = new RateLimitInterceptor(meterRegistry, messagingTemplate, true,
+                0.001, 2, 20, 1, 0.1, 3);
+
+        assertNotNull(limiter.preSend(send("/app/chat.send", "{}"), null));
+        assertNull(limiter.preSend(send("/app/chat.send", "{}"), null));
+
+        // корзина пользователя восполнилась, у сессии остался второй токен
+        Thread.sleep(100);
+        assertNotNull(limiter.preSend(send("/app/chat.send", "{}"), null));
+
+        assertEquals(1, meterRegistry.counter("chat.ratelimit.rejected", "scope", "user").count());
+        assertEquals(0, meterRegistry.counter("chat.ratelimit.rejected", "scope", "session").count());
+    }
+
+    private static Message<byte[]> send(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        accessor.setUser(() -> "alice");
+        return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
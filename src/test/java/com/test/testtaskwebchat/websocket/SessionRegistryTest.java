@@ -0,0 +1,171 @@
+package com.test.testtaskwebchat.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private static final long TIMEOUT_MS = 30_000;
+    private static final long TICK_MS = 1_000;
+
+    private final List<Object> events = new ArrayList<>();
+    private SessionRegistry registry;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry(events::add, TIMEOUT_MS, TICK_MS);
+        start = System.nanoTime();
+    }
+
+    @Test
+    void userStaysOnlineUntilLastSessionCloses() {
+        assertTrue(registry.register("s1", "alice", true, start));
+        assertFalse(registry.register("s2", "alice", true, start));
+
+        assertNull(registry.unregister("s1"));
+        assertTrue(registry.isOnline("alice"));
+
+        assertEquals("alice", registry.unregister("s2"));
+        assertFalse(registry.isOnline("alice"));
+    }
+
+    @Test
+    void silentSessionIsReapedAfterTimeout() {
+        registry.register("s1", "alice", true, start);
+
+        registry.reap(at(TIMEOUT_MS - TICK_MS));
+        assertTrue(registry.isOnline("alice"));
+
+        registry.reap(at(TIMEOUT_MS + TICK_MS));
+        assertFalse(registry.isOnline("alice"));
+        assertEquals(List.of(new SessionExpiredEvent("s1", "alice", true)), events);
+    }
+
+    @Test
+    void heartbeatsKeepSessionAlive() {
+        registry.register("s1", "alice", true, start);
+
+        for (long t = 10_000; t <= 120_000; t += 10_000) {
+            registry.touch("s1", at(t));
+            registry.reap(at(t));
+        }
+
+        assertTrue(registry.isOnline("alice"));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void expiredSessionDoesNotTakeOtherTabOffline() {
+        registry.register("s1", "alice", true, start);
+        registry.register("s2", "alice", true, start);
+
+        registry.touch("s2", at(TIMEOUT_MS - TICK_MS));
+        registry.reap(at(TIMEOUT_MS + TICK_MS));
+
+        assertTrue(registry.isOnline("alice"));
+        assertEquals(List.of(new SessionExpiredEvent("s1", "alice", false)), events);
+    }
+
+    @Test
+    void sessionWithoutHeartbeatsIsNotReaped() {
+        registry.register("s1", "alice", false, start);
+
+        registry.reap(at(TIMEOUT_MS * 4));
+
+        assertTrue(registry.isOnline("alice"));
+        assertTrue(events.isEmpty());
+        assertEquals("alice", registry.unregister("s1"));
+    }
+
+    @Test
+    void concurrentConnectsAndDisconnectsKeepUserCountConsistent() throws Exception {
+        int threads = 8;
+        int rounds = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String prefix = "t" + t + "-";
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < rounds; i++) {
+                        registry.register(prefix + i, "alice", false, start);
+                        registry.unregister(prefix + i);
+                    }
+                    return null;
+                }));
+            }
+            // одна вкладка открыта все время: пользователь не должен уходить в оффлайн
+            registry.register("steady", "alice", false, start);
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, registry.getSessionCount());
+        assertEquals("alice", registry.unregister("steady"));
+        assertFalse(registry.isOnline("alice"));
+    }
+
+    // замер по куче зависит от GC, поэтому не в обычном прогоне: ./gradlew capacityTest
+    @Test
+    @Tag("capacity")
+    void memoryPerSessionAt100kSessions() {
+        int sessions = 100_000;
+        String[] ids = new String[sessions];
+        String[] users = new String[sessions / 4];
+        for (int i = 0; i < sessions; i++) {
+            ids[i] = "session-" + i;
+        }
+        for (int i = 0; i < users.length; i++) {
+            users[i] = "user-" + i;
+        }
+
+        long before = usedHeap();
+        for (int i = 0; i < sessions; i++) {
+            registry.register(ids[i], users[i % users.length], true, start);
+        }
+        // переносим дедлайны в колесо, чтобы учесть и его память
+        registry.reap(start);
+        long after = usedHeap();
+
+        long bytesPerSession = (after - before) / sessions;
+        System.out.printf("SessionRegistry: %d sessions, ~%d bytes/session%n", sessions, bytesPerSession);
+
+        assertEquals(sessions, registry.getSessionCount());
+        assertTrue(bytesPerSession < 512, "Слишком много памяти на сессию: " + bytesPerSession);
+
+        for (int i = 0; i < sessions; i++) {
+            registry.unregister(ids[i]);
+        }
+        assertTrue(registry.getOnlineUsernames().isEmpty());
+    }
+
+    private long at(long millis) {
+        return start + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
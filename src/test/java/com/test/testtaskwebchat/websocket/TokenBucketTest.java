@@ -0,0 +1,48 @@
+package com.test.testtaskwebchat.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(5, 10);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire(now), "запрос " + i + " в пределах burst");
+        }
+        assertFalse(bucket.tryAcquire(now));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.nanosUntilAvailable(now));
+
+        long later = now + TimeUnit.MILLISECONDS.toNanos(200);
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    void becomesIdleAfterFullRefill() {
+        TokenBucket bucket = new TokenBucket(5, 10);
+        long now = System.nanoTime();
+
+        bucket.tryAcquire(now);
+        assertFalse(bucket.isIdle(now));
+        assertTrue(bucket.isIdle(now + TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test
+    void refundReturnsAcquiredPermit() {
+        TokenBucket bucket = new TokenBucket(5, 2);
+        long now = System.nanoTime();
+
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        bucket.refund();
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now));
+    }
+}
@@ -0,0 +1,90 @@
+package com.test.testtaskwebchat.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypingTrackerTest {
+
+    private static final long TTL_MS = 5_000;
+    private static final long TICK_MS = 500;
+
+    private final List<Object> events = new ArrayList<>();
+    private TypingTracker tracker;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new TypingTracker(events::add, TTL_MS, TICK_MS);
+        start = System.nanoTime();
+    }
+
+    @Test
+    void repeatedEventsAreCoalescedIntoOneBroadcast() {
+        for (int i = 0; i < 100; i++) {
+            tracker.started("alice", at(i));
+            tracker.started("bob", at(i));
+        }
+
+        assertTrue(tracker.tick(at(TICK_MS)));
+        assertFalse(tracker.tick(at(2 * TICK_MS)));
+        assertEquals(List.of(new TypingChangedEvent(List.of("alice", "bob"))), events);
+    }
+
+    @Test
+    void startAndStopWithinOneIntervalIsNotBroadcast() {
+        tracker.started("alice", at(0));
+        tracker.stopped("alice");
+
+        assertFalse(tracker.tick(at(TICK_MS)));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void silentTypistExpires() {
+        tracker.started("alice", at(0));
+        tracker.tick(at(TICK_MS));
+
+        tracker.tick(at(TTL_MS - TICK_MS));
+        assertEquals(List.of("alice"), tracker.getTyping());
+
+        assertTrue(tracker.tick(at(TTL_MS + TICK_MS)));
+        assertEquals(List.of(), tracker.getTyping());
+        assertEquals(new TypingChangedEvent(List.of()), events.get(events.size() - 1));
+    }
+
+    @Test
+    void refreshesKeepTypistAlive() {
+        tracker.started("alice", at(0));
+
+        for (long t = 2_000; t <= 30_000; t += 2_000) {
+            tracker.started("alice", at(t));
+            tracker.tick(at(t));
+        }
+
+        assertEquals(List.of("alice"), tracker.getTyping());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void restartAfterStopIsNotExpiredByOldDeadline() {
+        tracker.started("alice", at(0));
+        tracker.stopped("alice");
+        tracker.started("alice", at(4_000));
+
+        tracker.tick(at(TTL_MS + TICK_MS));
+        assertEquals(List.of("alice"), tracker.getTyping());
+
+        tracker.tick(at(4_000 + TTL_MS + TICK_MS));
+        assertEquals(List.of(), tracker.getTyping());
+    }
+
+    private long at(long millis) {
+        return start + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
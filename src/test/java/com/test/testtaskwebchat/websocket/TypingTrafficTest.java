@@ -0,0 +1,150 @@
+package com.test.testtaskwebchat.websocket;
+
+import com.test.testtaskwebchat.FormLogin;
+import com.test.testtaskwebchat.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузка индикатора набора на брокер относительно обычных сообщений.
+ * Отправители ведут себя как браузер: подтверждают набор раз в 2 с и отправляют сообщение,
+ * зрители подписаны на /topic/messages и /topic/typing. Кадры и байты считает OutboundTrafficMeter.
+ * Запуск: ./gradlew capacityTest
+ */
+@Tag("capacity")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:typing-traffic;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+)
+class TypingTrafficTest {
+
+    private static final int SENDERS = 5;
+    private static final int VIEWERS = 20;
+    private static final int ROUNDS = 3;
+    private static final long TYPING_REFRESH_MS = 2_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void typingCostsLessThanMessages() throws Exception {
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter());
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+        List<StompSession> sessions = new ArrayList<>();
+        try {
+            WebSocketHttpHeaders viewerHeaders = cookie(FormLogin.login(userService, port, "typing-viewer", "typing-pass"));
+            for (int i = 0; i < VIEWERS; i++) {
+                StompSession viewer = connect(stompClient, viewerHeaders);
+                viewer.subscribe("/topic/messages", IGNORE);
+                viewer.subscribe("/topic/typing", IGNORE);
+                sessions.add(viewer);
+            }
+            List<StompSession> senders = new ArrayList<>();
+            for (int i = 0; i < SENDERS; i++) {
+                senders.add(connect(stompClient, cookie(FormLogin.login(userService, port, "typist-" + i, "typing-pass"))));
+            }
+            sessions.addAll(senders);
+
+            long typingFrames = frames("/topic/typing");
+            long typingBytes = bytes("/topic/typing");
+            long messageFrames = frames("/topic/messages");
+            long messageBytes = bytes("/topic/messages");
+
+            for (int round = 0; round < ROUNDS; round++) {
+                senders.forEach(sender -> send(sender, "/app/chat.typing", "{\"typing\":true}"));
+                Thread.sleep(TYPING_REFRESH_MS);
+                senders.forEach(sender -> send(sender, "/app/chat.typing", "{\"typing\":true}"));
+                Thread.sleep(TYPING_REFRESH_MS / 2);
+                senders.forEach(sender -> send(sender, "/app/chat.send",
+                        "{\"clientMessageId\":\"" + UUID.randomUUID() + "\",\"content\":\"сообщение " + round + "\"}"));
+                // индикатор гаснет по отправке сообщения, ждем рассылку
+                Thread.sleep(TYPING_REFRESH_MS / 2);
+            }
+
+            typingFrames = frames("/topic/typing") - typingFrames;
+            typingBytes = bytes("/topic/typing") - typingBytes;
+            messageFrames = frames("/topic/messages") - messageFrames;
+            messageBytes = bytes("/topic/messages") - messageBytes;
+            System.out.printf("/topic/messages: %d кадров, %d байт%n", messageFrames, messageBytes);
+            System.out.printf("/topic/typing:   %d кадров, %d байт (%.0f%% кадров, %.0f%% байт сообщений)%n",
+                    typingFrames, typingBytes,
+                    100.0 * typingFrames / messageFrames, 100.0 * typingBytes / messageBytes);
+
+            assertEquals((long) SENDERS * ROUNDS * VIEWERS, messageFrames);
+            // набор перед каждым сообщением не должен удваивать исходящий поток
+            assertTrue(typingFrames < messageFrames,
+                    "кадров набора " + typingFrames + " при " + messageFrames + " кадрах сообщений");
+        } finally {
+            sessions.forEach(StompSession::disconnect);
+        }
+    }
+
+    private static final StompFrameHandler IGNORE = new StompFrameHandler() {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return String.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+        }
+    };
+
+    private StompSession connect(WebSocketStompClient client, WebSocketHttpHeaders headers) throws Exception {
+        return client.connectAsync("ws://localhost:" + port + "/ws/websocket", headers, new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private static void send(StompSession session, String destination, String json) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        session.send(headers, json);
+    }
+
+    private static WebSocketHttpHeaders cookie(String jsessionId) {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.add("Cookie", "JSESSIONID=" + jsessionId);
+        return headers;
+    }
+
+    private long frames(String destination) {
+        Counter counter = meterRegistry.find("chat.broker.outbound.frames").tag("destination", destination).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private long bytes(String destination) {
+        Counter counter = meterRegistry.find("chat.broker.outbound.bytes").tag("destination", destination).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+}